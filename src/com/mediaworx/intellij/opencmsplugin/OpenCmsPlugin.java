@@ -25,7 +25,6 @@
 package com.mediaworx.intellij.opencmsplugin;
 
 import com.intellij.openapi.actionSystem.*;
-import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.*;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.module.Module;
@@ -45,32 +44,27 @@ import com.mediaworx.intellij.opencmsplugin.actions.menus.OpenCmsEditorTabPopupM
 import com.mediaworx.intellij.opencmsplugin.actions.menus.OpenCmsMainMenu;
 import com.mediaworx.intellij.opencmsplugin.actions.menus.OpenCmsProjectPopupMenu;
 import com.mediaworx.intellij.opencmsplugin.configuration.OpenCmsModuleConfigurationData;
+import com.mediaworx.intellij.opencmsplugin.configuration.OpenCmsModuleConfigurationLoader;
 import com.mediaworx.intellij.opencmsplugin.configuration.OpenCmsPluginConfigurationData;
 import com.mediaworx.intellij.opencmsplugin.connector.OpenCmsPluginConnector;
 import com.mediaworx.intellij.opencmsplugin.listeners.OpenCmsModuleFileChangeListener;
 import com.mediaworx.intellij.opencmsplugin.opencms.OpenCmsConfiguration;
+import com.mediaworx.intellij.opencmsplugin.opencms.OpenCmsModule;
 import com.mediaworx.intellij.opencmsplugin.opencms.OpenCmsModules;
-import com.mediaworx.intellij.opencmsplugin.sync.SyncMode;
 import com.mediaworx.intellij.opencmsplugin.sync.VfsAdapter;
+import com.mediaworx.intellij.opencmsplugin.tools.PluginScheduler;
 import com.mediaworx.intellij.opencmsplugin.tools.PluginTools;
 import com.mediaworx.intellij.opencmsplugin.toolwindow.OpenCmsToolWindowConsole;
 import com.mediaworx.opencms.ideconnector.client.IDEConnectorClient;
 import com.mediaworx.opencms.ideconnector.client.IDEConnectorClientConfiguration;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
 
 import javax.swing.*;
 import java.io.File;
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.util.Map;
-import java.util.TimerTask;
-import java.util.TreeMap;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * OpenCms plugin for IntelliJ providing IntelliJ menu actions to sync resources to and from the OpenCms VFS, to publish
@@ -133,7 +127,7 @@ public class OpenCmsPlugin implements ProjectComponent, PersistentStateComponent
 	private VirtualFileManagerListener virtualFileManagerListener;
 	
 	/** Helper object to retrieve configuration data from the OpenCms configuration */
-	private OpenCmsConfiguration openCmsConfiguration;
+	private volatile OpenCmsConfiguration openCmsConfiguration;
 
 	/** Configuration data from the configuration form, is stored and loaded via PersistentStateComponent methods */
 	private OpenCmsPluginConfigurationData configurationData;
@@ -160,7 +154,7 @@ public class OpenCmsPlugin implements ProjectComponent, PersistentStateComponent
 	/**
 	 * The main menu
 	 */
-	private OpenCmsMainMenu openCmsMainMenu;
+	private volatile OpenCmsMainMenu openCmsMainMenu;
 
 	/**
 	 * ToolWindow for the OpenCms plugin
@@ -175,25 +169,39 @@ public class OpenCmsPlugin implements ProjectComponent, PersistentStateComponent
 	/** IntelliJ's action manager */
 	private ActionManager actionManager;
 
-	/** json parser used to parse the OpenCms module configuration file content */
-	private final JSONParser jsonParser = new JSONParser();
-
+	/** loader for the OpenCms module configuration files, caches parsed configurations */
+	private final OpenCmsModuleConfigurationLoader moduleConfigurationLoader = new OpenCmsModuleConfigurationLoader();
 
 	/**
-	 * timer used to execute delayed refreshes of OpenCms modules after IntelliJ modules have been changed
+	 * module configurations that were used to register or unregister OpenCms modules, mapped by module base path;
+	 * used to skip modules whose configuration didn't change
 	 */
-	private final java.util.Timer moduleUpdateTimer = new java.util.Timer();
+	private final Map<String, OpenCmsModuleConfigurationData> registeredModuleConfigurations = new HashMap<String, OpenCmsModuleConfigurationData>();
+
 
 	/**
-	 * task used to execute delayed OpenCms module updates after IntelliJ modules have been changed
+	 * key of the coalesced task used to execute delayed OpenCms module updates after IntelliJ modules have been
+	 * changed
 	 */
-	private TimerTask currentModuleUpdateTimerTask;
+	private final Object moduleUpdateTaskKey = new Object();
 
 	/**
 	 * Set to <code>true</code> the first time the OpenCms plugin is enabled
 	 */
 	private boolean wasInitialized = false;
 
+	/**
+	 * Set to <code>true</code> after the OpenCms configuration, the OpenCms modules and the connector have been
+	 * initialized (see {@link #activate()})
+	 */
+	private volatile boolean activated = false;
+
+	/**
+	 * Incremented whenever the plugin is disabled, so an activation running in the background notices that the plugin
+	 * was disabled in the meantime and doesn't complete
+	 */
+	private final AtomicInteger activationGeneration = new AtomicInteger();
+
 	/**
 	 * Creates a new plugin instance, called by IntelliJ
 	 * @param project   the IntelliJ project
@@ -216,14 +224,21 @@ public class OpenCmsPlugin implements ProjectComponent, PersistentStateComponent
 	private void initOpenCmsConfiguration() {
 		clearOpenCmsConfiguration();
 		OpenCmsPluginConfigurationData config = getPluginConfiguration();
-		openCmsConfiguration = new OpenCmsConfiguration(config);
-		openCmsConfiguration.startMonitoringConfigurationChanges();
+		OpenCmsConfiguration configuration = new OpenCmsConfiguration(config);
+		openCmsConfiguration = configuration;
+		configuration.startMonitoringConfigurationChanges();
+		// the configuration may have been cleared by disable() in the meantime, never leave it monitoring
+		if (openCmsConfiguration != configuration) {
+			configuration.stopMonitoringConfigurationChanges();
+		}
 	}
 
 	private void clearOpenCmsConfiguration() {
-		if (openCmsConfiguration != null) {
-			openCmsConfiguration.stopMonitoringConfigurationChanges();
-			openCmsConfiguration = null;
+		// the configuration may be cleared by disable() while it is initialized by an activation in the background
+		OpenCmsConfiguration configuration = openCmsConfiguration;
+		openCmsConfiguration = null;
+		if (configuration != null) {
+			configuration.stopMonitoringConfigurationChanges();
 		}
 	}
 
@@ -237,7 +252,9 @@ public class OpenCmsPlugin implements ProjectComponent, PersistentStateComponent
 		LOG.info("OpenCmsPlugin: projectOpened called, project: " + project.getName());
 		OpenCmsPluginConfigurationData config = getPluginConfiguration();
 		if (config != null && config.isOpenCmsPluginEnabled()) {
+			long start = System.currentTimeMillis();
 			enable();
+			LOG.info("OpenCmsPlugin: plugin enabled in " + (System.currentTimeMillis() - start) + " ms (lazy activation: " + config.isLazyActivationEnabled() + "), project: " + project.getName());
 		}
 	}
 
@@ -250,33 +267,24 @@ public class OpenCmsPlugin implements ProjectComponent, PersistentStateComponent
 		LOG.info("OpenCmsPlugin: projectClosed called, project: " + project.getName());
 		if (wasInitialized) {
 			openCmsMainMenu.unregisterModuleActions();
-			openCmsConfiguration.stopMonitoringConfigurationChanges();
+			// disable stops monitoring configuration changes (if the plugin was activated)
 			disable();
 		}
+		if (vfsAdapter != null) {
+			vfsAdapter.stopHeartbeat();
+		}
 	}
 
 	/**
-	 * Enables the plugin for the current project. Initializes the plugin and its actions if initialization was not
-	 * done before. If the plugin connector is activated in the project level configuration it gets initialized as well.
+	 * Enables the plugin for the current project. Initializes the plugin's menus and listeners if initialization was
+	 * not done before. The OpenCms configuration, the OpenCms modules and the connector are initialized right away
+	 * or, if lazy activation is enabled in the project level configuration, by a background task (see
+	 * {@link #activate()}).
 	 */
 	public void enable() {
-		initOpenCmsConfiguration();
-		initializeOpenCmsModules();
+		activated = false;
 
 		if (!wasInitialized) {
-			OpenCmsPluginConfigurationData config = getPluginConfiguration();
-			if (config != null && config.isOpenCmsPluginEnabled()) {
-
-				if (config.isPluginConnectorEnabled()) {
-					pluginConnector =   new OpenCmsPluginConnector(
-												config.getConnectorUrl(),
-												config.getUsername(),
-												config.getPassword(),
-												config.isUseMetaDateVariablesEnabled(),
-												config.isUseMetaIdVariablesEnabled()
-										);
-				}
-			}
 			registerListeners();
 			registerMenus();
 			wasInitialized = true;
@@ -286,13 +294,161 @@ public class OpenCmsPlugin implements ProjectComponent, PersistentStateComponent
 		else {
 			setToolWindowAvailable(true);
 		}
+
+		OpenCmsPluginConfigurationData config = getPluginConfiguration();
+		if (config.isLazyActivationEnabled()) {
+			activateInBackground();
+		}
+		else {
+			activate();
+		}
+	}
+
+	/**
+	 * Activates the plugin on a thread of the plugin's I/O executor
+	 */
+	private void activateInBackground() {
+		PluginScheduler.getInstance().submit(PluginScheduler.Pool.IO, new Runnable() {
+			@Override
+			public void run() {
+				ensureActivated();
+			}
+		});
+	}
+
+	/**
+	 * Activates the plugin if that wasn't done yet, blocks if the activation is currently running on another thread.
+	 * Called by OpenCms actions before they're executed, so actions never run against a plugin that is only partly
+	 * initialized.
+	 */
+	public void ensureActivated() {
+		if (!activated) {
+			activate();
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the plugin was activated (the OpenCms configuration and modules are initialized),
+	 *         <code>false</code> otherwise
+	 */
+	public boolean isActivated() {
+		return activated;
+	}
+
+	/**
+	 * Initializes the parts of the plugin that aren't needed to open the project: parses the OpenCms configuration
+	 * and starts monitoring it, initializes the OpenCms modules and their menu actions and sets up the plugin
+	 * connector (if it is activated in the project level configuration).
+	 */
+	private synchronized void activate() {
+		if (activated) {
+			return;
+		}
+		int generation = activationGeneration.get();
+		OpenCmsPluginConfigurationData config = getPluginConfiguration();
+		if (!config.isOpenCmsPluginEnabled()) {
+			return;
+		}
+		long start = System.currentTimeMillis();
+
+		initOpenCmsConfiguration();
+		if (isActivationCanceled(generation)) {
+			clearOpenCmsConfiguration();
+			return;
+		}
+		long configurationParsed = System.currentTimeMillis();
+
+		initializeOpenCmsModules(true);
+		long modulesInitialized = System.currentTimeMillis();
+
+		if (config.isPluginConnectorEnabled() && pluginConnector == null) {
+			pluginConnector =   new OpenCmsPluginConnector(
+										config.getConnectorUrl(),
+										config.getUsername(),
+										config.getPassword(),
+										config.isUseMetaDateVariablesEnabled(),
+										config.isUseMetaIdVariablesEnabled()
+								);
+		}
+		if (isActivationCanceled(generation)) {
+			clearOpenCmsConfiguration();
+			return;
+		}
+		if (openCmsMainMenu != null) {
+			openCmsMainMenu.registerModuleActions();
+		}
+		activated = true;
+
+		// the plugin may have been disabled while the module actions were registered
+		if (isActivationCanceled(generation)) {
+			activated = false;
+			clearOpenCmsConfiguration();
+			return;
+		}
+
+		long end = System.currentTimeMillis();
+		LOG.info("OpenCmsPlugin: activated in " + (end - start) + " ms (configuration: " + (configurationParsed - start) +
+				" ms, modules: " + (modulesInitialized - configurationParsed) + " ms, connector and menus: " +
+				(end - modulesInitialized) + " ms), project: " + project.getName());
+
+		if (config.isConnectionWarmUpEnabled()) {
+			warmUpConnectionsInBackground();
+		}
+	}
+
+	/**
+	 * Checks if the plugin was disabled since an activation was started
+	 * @param generation the activation generation read when the activation was started
+	 * @return <code>true</code> if the activation has to be aborted, <code>false</code> otherwise
+	 */
+	private boolean isActivationCanceled(int generation) {
+		if (activationGeneration.get() != generation || !getPluginConfiguration().isOpenCmsPluginEnabled()) {
+			LOG.info("OpenCmsPlugin: the plugin was disabled during the activation, activation canceled");
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Opens the CMIS session (reading the repository info, the type definitions and the module resources) and the
+	 * connector connection on a thread of the plugin's CMIS executor, so the first sync or connector action doesn't have
+	 * to wait for them.
+	 */
+	private void warmUpConnectionsInBackground() {
+		PluginScheduler.getInstance().submit(PluginScheduler.Pool.CMIS, new Runnable() {
+			@Override
+			public void run() {
+				VfsAdapter adapter = getVfsAdapter();
+				if (adapter != null) {
+					List<String> moduleResources = new ArrayList<String>();
+					// modules are registered while holding the plugin's lock
+					synchronized (OpenCmsPlugin.this) {
+						if (openCmsModules != null) {
+							for (OpenCmsModule ocmsModule : openCmsModules.getAllModules()) {
+								if (ocmsModule.getModuleResources() != null) {
+									moduleResources.addAll(ocmsModule.getModuleResources());
+								}
+							}
+						}
+					}
+					adapter.warmUp(moduleResources);
+				}
+				OpenCmsPluginConnector connector = pluginConnector;
+				if (connector != null) {
+					connector.warmUp();
+				}
+			}
+		});
 	}
 
 	/**
 	 * Disables the plugin. The only thing done here is deactivating the plugin's tool window, menus are disabled
-	 * automatically because all actions are hidden if the plugin is deactivated
+	 * automatically because all actions are hidden if the plugin is deactivated. An activation running in the
+	 * background at the same time is canceled.
 	 */
 	public void disable() {
+		activationGeneration.incrementAndGet();
+		activated = false;
 		clearOpenCmsConfiguration();
 
 		if (wasInitialized) {
@@ -302,10 +458,15 @@ public class OpenCmsPlugin implements ProjectComponent, PersistentStateComponent
 
 	/**
 	 * initializes all OpenCms modules that are configured in the IntelliJ modules (option "Is OpenCms module" checked)
-	 * and removes modules that aren't configured as OpenCms modules
+	 * and removes modules that aren't configured as OpenCms modules. Module configuration files are only read if they
+	 * were changed since the last call, and only modules with changed configurations are registered or unregistered
+	 * (unless <code>refreshAll</code> is set).
+	 * @param refreshAll <code>true</code> if all modules should be registered again (e.g. after the project level
+	 *                   configuration was changed), <code>false</code> if only changed modules should be updated
 	 */
-	private synchronized void initializeOpenCmsModules() {
+	private synchronized void initializeOpenCmsModules(boolean refreshAll) {
 		LOG.info("OpenCmsPlugin: initializeOpenCmsModules called, project: " + project.getName());
+		long start = System.currentTimeMillis();
 
 		ModuleManager moduleManager = ModuleManager.getInstance(project);
 		Module[] modules = moduleManager.getModules();
@@ -316,126 +477,75 @@ public class OpenCmsPlugin implements ProjectComponent, PersistentStateComponent
 			ideaModuleMap.put(module.getName(), module);
 		}
 
-
+		Map<String, String> ideaModuleNames = new LinkedHashMap<String, String>();
 		for (Module ideaModule : ideaModuleMap.values()) {
 			String moduleBasePath = PluginTools.getModuleContentRoot(ideaModule);
 			if (StringUtils.isNotBlank(moduleBasePath)) {
-				OpenCmsModuleConfigurationData moduleConfig = null;
-
-				boolean isModuleConfigReadFromFile = false;
-				String moduleConfigFilePath = moduleBasePath + "/" + OPENCMS_MODULE_CONFIG_FILE;
-				File moduleConfigFile = new File(moduleConfigFilePath);
-				if (moduleConfigFile.exists() && moduleConfigFile.isFile()) {
-					try {
-						String moduleConfigurationJson = FileUtils.readFileToString(moduleConfigFile, StandardCharsets.UTF_8);
-						try {
-							JSONObject moduleJson = (JSONObject)jsonParser.parse(moduleConfigurationJson);
-							moduleConfig = readOpenCmsModuleConfiguration(moduleJson, ideaModule.getName());
-							isModuleConfigReadFromFile = true;
-						}
-						catch (ParseException e) {
-							LOG.error("Can't parse the module configuration file " + moduleConfigFilePath, e);
-						}
-						catch (Exception e) {
-							LOG.error("Unexpected exception parsing the OpenCms module configuration " + moduleConfigFilePath, e);
-						}
-					}
-					catch (IOException e) {
-						// this should never happen, since UTF-8 should exist. Let's log it anyway
-						LOG.warn("Charset UTF-8 not found, can't read " + moduleConfigFilePath);
-					}
-				}
-
-				boolean validModule = false;
-				if (moduleConfig != null && moduleConfig.isOpenCmsModuleEnabled()) {
-					getOpenCmsModules().registerModule(moduleBasePath, moduleConfig);
-					validModule = true;
-				}
-				if (!validModule) {
-					getOpenCmsModules().unregisterModule(moduleBasePath);
-				}
+				ideaModuleNames.put(moduleBasePath, ideaModule.getName());
 			}
 			else {
 				LOG.warn(String.format("Module %s doesn't have a valid content root", ideaModule.getName()));
 			}
 		}
-	}
-
-	/**
-	 * converts the json object containing the OpenCms module configuration to an instance of
-	 * OpenCmsModuleConfigurationData
-	 * @param moduleJson the json object containing the OpenCms module configuration
-	 * @return OpenCmsModuleConfigurationData
-	 */
-	private OpenCmsModuleConfigurationData readOpenCmsModuleConfiguration(JSONObject moduleJson, String intelliJModuleName) {
-		OpenCmsModuleConfigurationData moduleConfig;
-		String openCmsModuleName = (String)moduleJson.get("openCmsModuleName");
-		String localVfsRoot = (String)moduleJson.get("localVfsRoot");
-		String exportImportSiteRoot = (String)moduleJson.get("exportImportSiteRoot");
-		String syncMode = (String)moduleJson.get("syncMode");
-		String moduleVersion = (String)moduleJson.get("moduleVersion");
 
-		moduleConfig = new OpenCmsModuleConfigurationData();
-		moduleConfig.setOpenCmsModuleEnabled(true);
-
-		// handle the OpenCms module name (default or specific)
-		moduleConfig.setUseProjectDefaultModuleNameEnabled(StringUtils.isBlank(openCmsModuleName) || "default".equals(openCmsModuleName));
-		if (!moduleConfig.isUseProjectDefaultModuleNameEnabled()) {
-			moduleConfig.setModuleName(openCmsModuleName);
-		}
-
-		// handle the local VFS root (default or specific)
-		moduleConfig.setUseProjectDefaultVfsRootEnabled(StringUtils.isBlank(localVfsRoot) || "default".equals(localVfsRoot));
-		if (!moduleConfig.isUseProjectDefaultVfsRootEnabled()) {
-			moduleConfig.setLocalVfsRoot(localVfsRoot);
+		if (refreshAll) {
+			registeredModuleConfigurations.clear();
 		}
+		Map<String, OpenCmsModuleConfigurationData> moduleConfigs = moduleConfigurationLoader.loadModuleConfigurations(ideaModuleNames);
 
-		// handle the export/import site root
-		moduleConfig.setExportImportSiteRoot(StringUtils.isNotEmpty(exportImportSiteRoot) ? exportImportSiteRoot : "/");
+		int numUpdatedModules = 0;
+		for (Map.Entry<String, OpenCmsModuleConfigurationData> entry : moduleConfigs.entrySet()) {
+			String moduleBasePath = entry.getKey();
+			OpenCmsModuleConfigurationData moduleConfig = entry.getValue();
+			// the loader returns the same instance for unchanged configuration files
+			if (registeredModuleConfigurations.containsKey(moduleBasePath) && registeredModuleConfigurations.get(moduleBasePath) == moduleConfig) {
+				continue;
+			}
+			registeredModuleConfigurations.put(moduleBasePath, moduleConfig);
+			numUpdatedModules++;
 
-		// handle the sync mode (default, PUSH, SYNC or PULL)
-		if (
-				StringUtils.isEmpty(syncMode) ||
-				!(syncMode.equals("default") || syncMode.equals("PUSH") || syncMode.equals("SYNC") || syncMode.equals("PULL"))
-			) {
-			LOG.warn("invalid sync mode in opencms module configuration for module " + intelliJModuleName);
-			syncMode = "default";
-		}
-		moduleConfig.setUseProjectDefaultSyncModeEnabled("default".equals(syncMode));
-		if (!moduleConfig.isUseProjectDefaultSyncModeEnabled()) {
-			moduleConfig.setSyncMode(SyncMode.valueOf(syncMode));
+			if (moduleConfig != null && moduleConfig.isOpenCmsModuleEnabled()) {
+				getOpenCmsModules().registerModule(moduleBasePath, moduleConfig);
+			}
+			else {
+				getOpenCmsModules().unregisterModule(moduleBasePath);
+			}
 		}
 
-		// handle the module version
-		moduleConfig.setSetSpecificModuleVersionEnabled(StringUtils.isNotBlank(syncMode));
-		if (moduleConfig.isSetSpecificModuleVersionEnabled()) {
-			moduleConfig.setModuleVersion(moduleVersion);
+		// unregister OpenCms modules whose IntelliJ modules were removed
+		Iterator<String> registeredBasePaths = registeredModuleConfigurations.keySet().iterator();
+		while (registeredBasePaths.hasNext()) {
+			String moduleBasePath = registeredBasePaths.next();
+			if (!moduleConfigs.containsKey(moduleBasePath)) {
+				getOpenCmsModules().unregisterModule(moduleBasePath);
+				registeredBasePaths.remove();
+				numUpdatedModules++;
+			}
 		}
 
-		return moduleConfig;
+		LOG.info("OpenCmsPlugin: " + numUpdatedModules + " of " + moduleConfigs.size() + " modules updated in " + (System.currentTimeMillis() - start) + " ms");
 	}
 
 	/**
 	 * Handles delayed refresh of the OpenCms modules after IntelliJ module configuration changes. If multiple IntelliJ
-	 * modules have been changed, the delayed execution is stopped and a new scheduled task is queued, so the refresh is
-	 * done only once.
+	 * modules have been changed, the pending refresh is replaced by a new one (see
+	 * {@link PluginScheduler#scheduleCoalesced(PluginScheduler.Pool, Object, Runnable, long)}), so the refresh is done
+	 * only once.
 	 */
 	public void queueOpenCmsModuleUpdate() {
-		if (currentModuleUpdateTimerTask != null) {
-			currentModuleUpdateTimerTask.cancel();
-		}
-		currentModuleUpdateTimerTask = new TimerTask() {
+		PluginScheduler.getInstance().scheduleCoalesced(PluginScheduler.Pool.IO, moduleUpdateTaskKey, new Runnable() {
 			@Override
 			public void run() {
+				if (project == null) {
+					return;
+				}
 				LOG.info("OpenCmsPlugin: running timed OpenCms module refresh now: " + project.getName());
-				currentModuleUpdateTimerTask = null;
-				initializeOpenCmsModules();
+				initializeOpenCmsModules(false);
 				if (openCmsMainMenu != null) {
 					openCmsMainMenu.registerModuleActions();
 				}
 			}
-		};
-		moduleUpdateTimer.schedule(currentModuleUpdateTimerTask, MODULE_CHANGE_UPDATE_DELAY);
+		}, MODULE_CHANGE_UPDATE_DELAY);
 	}
 
 
@@ -452,10 +562,11 @@ public class OpenCmsPlugin implements ProjectComponent, PersistentStateComponent
 	/**
 	 * Registers listeners for IntelliJ events. The listeners only listen for file change events and only file
 	 * deletions, renames and moves are handled (depending on the project level configuration these changes may
-	 * be synced back to OpenCms).
+	 * be synced back to OpenCms). The listener is connected to the project's message bus, so the subscription ends
+	 * when the project is closed.
 	 */
 	private void registerListeners() {
-		MessageBus bus = ApplicationManager.getApplication().getMessageBus();
+		MessageBus bus = project.getMessageBus();
 		MessageBusConnection connection = bus.connect();
 		OpenCmsModuleFileChangeListener fileChangeListener = new OpenCmsModuleFileChangeListener(this);
 		connection.subscribe(VirtualFileManager.VFS_CHANGES, fileChangeListener);
@@ -607,11 +718,16 @@ public class OpenCmsPlugin implements ProjectComponent, PersistentStateComponent
 	@Override
 	public void disposeComponent() {
 		LOG.info("OpenCmsPlugin: disposeComponent called, project: " + project.getName());
+		PluginScheduler.getInstance().cancelCoalesced(moduleUpdateTaskKey);
+		LOG.info("OpenCmsPlugin: scheduler metrics: " + PluginScheduler.getInstance().getMetricsSummary());
 		project = null;
 		configurationData = null;
 		clearOpenCmsConfiguration();
 		openCmsModules = null;
-		vfsAdapter = null;
+		if (vfsAdapter != null) {
+			vfsAdapter.dispose();
+			vfsAdapter = null;
+		}
 		pluginConnector = null;
 		toolWindow = null;
 		console = null;
@@ -683,6 +799,9 @@ public class OpenCmsPlugin implements ProjectComponent, PersistentStateComponent
 			OpenCmsPluginConfigurationData config = getPluginConfiguration();
 			if (config != null && config.isOpenCmsPluginEnabled() && config.getPassword() != null && config.getPassword().length() > 0) {
 				vfsAdapter = new VfsAdapter(config.getRepository(), config.getUsername(), config.getPassword());
+				vfsAdapter.setChildrenPageSize(config.getCmisChildrenPageSize());
+				vfsAdapter.setPullFsyncEnabled(config.isPullFsyncEnabled());
+				vfsAdapter.startHeartbeat();
 			}
 		}
 		return vfsAdapter;
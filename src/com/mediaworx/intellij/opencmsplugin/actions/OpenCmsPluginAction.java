@@ -49,13 +49,17 @@ public abstract class OpenCmsPluginAction extends AnAction {
 
 	/**
 	 * Method triggered by IntelliJ whenever a menu action is executed by the user. Does nothing by itself besides
-	 * initializing some variables needed for action execution. The actual action functionality can be found in
-	 * implementing classes.
+	 * initializing some variables needed for action execution and making sure the plugin is activated (see
+	 * {@link OpenCmsPlugin#ensureActivated()}). The actual action functionality can be found in implementing
+	 * classes.
 	 * @param event the action event, provided by IntelliJ
 	 */
 	@Override
 	public void actionPerformed(AnActionEvent event) {
 		init(event);
+		if (plugin != null && isPluginEnabled()) {
+			plugin.ensureActivated();
+		}
 	}
 
 	/**
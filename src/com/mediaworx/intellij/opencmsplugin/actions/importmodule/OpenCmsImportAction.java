@@ -30,6 +30,7 @@ import com.intellij.openapi.ui.Messages;
 import com.intellij.util.ui.UIUtil;
 import com.mediaworx.intellij.opencmsplugin.actions.OpenCmsConnectionAction;
 import com.mediaworx.intellij.opencmsplugin.opencms.OpenCmsModule;
+import com.mediaworx.intellij.opencmsplugin.tools.PluginScheduler;
 import com.mediaworx.intellij.opencmsplugin.toolwindow.ConsolePrinter;
 import com.mediaworx.intellij.opencmsplugin.toolwindow.OpenCmsToolWindowConsole;
 import com.mediaworx.opencms.ideconnector.data.ModuleImportInfo;
@@ -106,8 +107,7 @@ public abstract class OpenCmsImportAction extends OpenCmsConnectionAction {
 						}
 					}
 				};
-				Thread thread = new Thread(runnable);
-				thread.start();
+				PluginScheduler.getInstance().submit(PluginScheduler.Pool.JOBS, runnable);
 			}
 		}
 		else {
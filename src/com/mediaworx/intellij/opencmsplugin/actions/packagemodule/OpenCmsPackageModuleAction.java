@@ -26,9 +26,9 @@ package com.mediaworx.intellij.opencmsplugin.actions.packagemodule;
 
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.diagnostic.Logger;
-import com.intellij.openapi.vfs.LocalFileSystem;
 import com.mediaworx.intellij.opencmsplugin.actions.OpenCmsPluginAction;
 import com.mediaworx.intellij.opencmsplugin.opencms.OpenCmsModule;
+import com.mediaworx.intellij.opencmsplugin.tools.VfsRefreshCoalescer;
 import com.mediaworx.opencms.moduleutils.packager.OpenCmsModulePackager;
 import com.mediaworx.opencms.moduleutils.packager.exceptions.OpenCmsModulePackagerException;
 import org.jetbrains.annotations.NotNull;
@@ -36,8 +36,6 @@ import org.jetbrains.annotations.NotNull;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
 
 /**
  * Parent action for all actions used to package module zip files
@@ -87,12 +85,7 @@ public abstract class OpenCmsPackageModuleAction extends OpenCmsPluginAction {
 
 			filesToBeRefreshed.add(new File(zipTargetPath));
 		}
-		new Timer().schedule(new TimerTask() {
-			@Override
-			public void run() {
-				LocalFileSystem.getInstance().refreshIoFiles(filesToBeRefreshed, true, false, null);
-			}
-		}, 1000);
+		VfsRefreshCoalescer.getInstance().refreshLater(filesToBeRefreshed, 1000);
 	}
 
 	/**
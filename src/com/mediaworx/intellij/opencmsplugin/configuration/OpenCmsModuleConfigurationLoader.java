@@ -0,0 +1,257 @@
+/*
+ * This file is part of the OpenCms plugin for IntelliJ by mediaworx.
+ *
+ * For further information about the OpenCms plugin for IntelliJ, please
+ * see the project website at GitHub:
+ * https://github.com/mediaworx/opencms-intellijplugin
+ *
+ * Copyright (C) 2007-2016 mediaworx berlin AG (http://www.mediaworx.com)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+
+package com.mediaworx.intellij.opencmsplugin.configuration;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.mediaworx.intellij.opencmsplugin.OpenCmsPlugin;
+import com.mediaworx.intellij.opencmsplugin.sync.SyncMode;
+import com.mediaworx.intellij.opencmsplugin.tools.PluginScheduler;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Loads the OpenCms module configurations (<code>opencms-module-config.json</code>) of IntelliJ modules. Parsed
+ * configurations are cached by file path, a configuration file is only read again if its modification date or size
+ * changed, so an unchanged file always results in the same {@link OpenCmsModuleConfigurationData} instance. Changed
+ * files are read and parsed in parallel.
+ */
+public class OpenCmsModuleConfigurationLoader {
+
+	private static final Logger LOG = Logger.getInstance(OpenCmsModuleConfigurationLoader.class);
+
+	/** maximum number of threads (including the calling thread) used to read module configuration files */
+	private static final int MAX_LOADER_THREADS = 8;
+
+	/** parsed module configurations, mapped by the path of the module configuration file */
+	private final Map<String, CachedModuleConfiguration> cache = new ConcurrentHashMap<String, CachedModuleConfiguration>();
+
+	/**
+	 * Returns the OpenCms module configurations for the given IntelliJ modules, only configuration files that were
+	 * changed since the last call are read.
+	 * @param intelliJModuleNames names of the IntelliJ modules, mapped by the module's base path
+	 * @return the module configurations mapped by module base path, IntelliJ modules without a valid OpenCms module
+	 *         configuration are mapped to <code>null</code>
+	 */
+	public Map<String, OpenCmsModuleConfigurationData> loadModuleConfigurations(Map<String, String> intelliJModuleNames) {
+		Map<String, OpenCmsModuleConfigurationData> moduleConfigurations = new LinkedHashMap<String, OpenCmsModuleConfigurationData>();
+		Map<String, Callable<CachedModuleConfiguration>> loaders = new LinkedHashMap<String, Callable<CachedModuleConfiguration>>();
+		Set<String> configFilePaths = new HashSet<String>();
+
+		for (Map.Entry<String, String> entry : intelliJModuleNames.entrySet()) {
+			String moduleBasePath = entry.getKey();
+			final String intelliJModuleName = entry.getValue();
+			final File moduleConfigFile = new File(moduleBasePath + "/" + OpenCmsPlugin.OPENCMS_MODULE_CONFIG_FILE);
+			final String moduleConfigFilePath = moduleConfigFile.getPath();
+			configFilePaths.add(moduleConfigFilePath);
+
+			if (!moduleConfigFile.isFile()) {
+				moduleConfigurations.put(moduleBasePath, null);
+				continue;
+			}
+			final long lastModified = moduleConfigFile.lastModified();
+			final long length = moduleConfigFile.length();
+			CachedModuleConfiguration cachedConfiguration = cache.get(moduleConfigFilePath);
+			if (cachedConfiguration != null && cachedConfiguration.lastModified == lastModified && cachedConfiguration.length == length) {
+				moduleConfigurations.put(moduleBasePath, cachedConfiguration.moduleConfig);
+				continue;
+			}
+			loaders.put(moduleBasePath, new Callable<CachedModuleConfiguration>() {
+				@Override
+				public CachedModuleConfiguration call() {
+					OpenCmsModuleConfigurationData moduleConfig = readModuleConfigurationFile(moduleConfigFile, intelliJModuleName);
+					return new CachedModuleConfiguration(lastModified, length, moduleConfig);
+				}
+			});
+		}
+
+		// configuration files of removed modules don't have to be cached any more
+		cache.keySet().retainAll(configFilePaths);
+
+		if (!loaders.isEmpty()) {
+			LOG.info("Reading " + loaders.size() + " OpenCms module configuration files");
+			for (Map.Entry<String, CachedModuleConfiguration> entry : executeLoaders(loaders).entrySet()) {
+				String moduleBasePath = entry.getKey();
+				CachedModuleConfiguration loadedConfiguration = entry.getValue();
+				cache.put(new File(moduleBasePath + "/" + OpenCmsPlugin.OPENCMS_MODULE_CONFIG_FILE).getPath(), loadedConfiguration);
+				moduleConfigurations.put(moduleBasePath, loadedConfiguration.moduleConfig);
+			}
+		}
+		return moduleConfigurations;
+	}
+
+	/**
+	 * Internal method, executes the given loaders. If there is more than one loader, helper tasks are submitted to the
+	 * plugin's I/O executor. The calling thread and the helpers take the loaders from a shared queue, so the calling
+	 * thread never waits for a helper that couldn't be started yet (e.g. because the I/O executor is busy).
+	 * @param loaders the loaders, mapped by module base path
+	 * @return the loaded configurations, mapped by module base path
+	 */
+	private Map<String, CachedModuleConfiguration> executeLoaders(Map<String, Callable<CachedModuleConfiguration>> loaders) {
+		final Map<String, CachedModuleConfiguration> loadedConfigurations = new ConcurrentHashMap<String, CachedModuleConfiguration>();
+		final Queue<Map.Entry<String, Callable<CachedModuleConfiguration>>> pendingLoaders = new ConcurrentLinkedQueue<Map.Entry<String, Callable<CachedModuleConfiguration>>>(loaders.entrySet());
+		final CountDownLatch numUnfinishedLoaders = new CountDownLatch(loaders.size());
+
+		Runnable worker = new Runnable() {
+			@Override
+			public void run() {
+				Map.Entry<String, Callable<CachedModuleConfiguration>> entry;
+				while ((entry = pendingLoaders.poll()) != null) {
+					try {
+						loadedConfigurations.put(entry.getKey(), entry.getValue().call());
+					}
+					catch (Exception e) {
+						LOG.error("Unexpected exception loading the OpenCms module configuration for " + entry.getKey(), e);
+					}
+					finally {
+						numUnfinishedLoaders.countDown();
+					}
+				}
+			}
+		};
+
+		int numThreads = Math.min(loaders.size(), Math.min(MAX_LOADER_THREADS, Runtime.getRuntime().availableProcessors()));
+		for (int i = 1; i < numThreads; i++) {
+			PluginScheduler.getInstance().submit(PluginScheduler.Pool.IO, worker);
+		}
+		worker.run();
+		try {
+			// loaders taken by helpers may still be running
+			numUnfinishedLoaders.await();
+		}
+		catch (InterruptedException e) {
+			LOG.info("Loading the OpenCms module configurations was interrupted");
+			Thread.currentThread().interrupt();
+		}
+		return new HashMap<String, CachedModuleConfiguration>(loadedConfigurations);
+	}
+
+	/**
+	 * Internal method, reads and parses a module configuration file
+	 * @param moduleConfigFile   the module configuration file
+	 * @param intelliJModuleName name of the IntelliJ module (used for logging)
+	 * @return the module configuration, <code>null</code> if the file can't be read or parsed
+	 */
+	private static OpenCmsModuleConfigurationData readModuleConfigurationFile(File moduleConfigFile, String intelliJModuleName) {
+		String moduleConfigFilePath = moduleConfigFile.getPath();
+		try {
+			String moduleConfigurationJson = FileUtils.readFileToString(moduleConfigFile, StandardCharsets.UTF_8);
+			try {
+				// JSONParser isn't thread safe, so each file gets its own parser
+				JSONObject moduleJson = (JSONObject)new JSONParser().parse(moduleConfigurationJson);
+				return readOpenCmsModuleConfiguration(moduleJson, intelliJModuleName);
+			}
+			catch (ParseException e) {
+				LOG.error("Can't parse the module configuration file " + moduleConfigFilePath, e);
+			}
+			catch (Exception e) {
+				LOG.error("Unexpected exception parsing the OpenCms module configuration " + moduleConfigFilePath, e);
+			}
+		}
+		catch (IOException e) {
+			LOG.warn("Can't read " + moduleConfigFilePath, e);
+		}
+		return null;
+	}
+
+	/**
+	 * converts the json object containing the OpenCms module configuration to an instance of
+	 * OpenCmsModuleConfigurationData
+	 * @param moduleJson the json object containing the OpenCms module configuration
+	 * @param intelliJModuleName name of the IntelliJ module (used for logging)
+	 * @return OpenCmsModuleConfigurationData
+	 */
+	private static OpenCmsModuleConfigurationData readOpenCmsModuleConfiguration(JSONObject moduleJson, String intelliJModuleName) {
+		OpenCmsModuleConfigurationData moduleConfig;
+		String openCmsModuleName = (String)moduleJson.get("openCmsModuleName");
+		String localVfsRoot = (String)moduleJson.get("localVfsRoot");
+		String exportImportSiteRoot = (String)moduleJson.get("exportImportSiteRoot");
+		String syncMode = (String)moduleJson.get("syncMode");
+		String moduleVersion = (String)moduleJson.get("moduleVersion");
+
+		moduleConfig = new OpenCmsModuleConfigurationData();
+		moduleConfig.setOpenCmsModuleEnabled(true);
+
+		// handle the OpenCms module name (default or specific)
+		moduleConfig.setUseProjectDefaultModuleNameEnabled(StringUtils.isBlank(openCmsModuleName) || "default".equals(openCmsModuleName));
+		if (!moduleConfig.isUseProjectDefaultModuleNameEnabled()) {
+			moduleConfig.setModuleName(openCmsModuleName);
+		}
+
+		// handle the local VFS root (default or specific)
+		moduleConfig.setUseProjectDefaultVfsRootEnabled(StringUtils.isBlank(localVfsRoot) || "default".equals(localVfsRoot));
+		if (!moduleConfig.isUseProjectDefaultVfsRootEnabled()) {
+			moduleConfig.setLocalVfsRoot(localVfsRoot);
+		}
+
+		// handle the export/import site root
+		moduleConfig.setExportImportSiteRoot(StringUtils.isNotEmpty(exportImportSiteRoot) ? exportImportSiteRoot : "/");
+
+		// handle the sync mode (default, PUSH, SYNC or PULL)
+		if (
+				StringUtils.isEmpty(syncMode) ||
+				!(syncMode.equals("default") || syncMode.equals("PUSH") || syncMode.equals("SYNC") || syncMode.equals("PULL"))
+			) {
+			LOG.warn("invalid sync mode in opencms module configuration for module " + intelliJModuleName);
+			syncMode = "default";
+		}
+		moduleConfig.setUseProjectDefaultSyncModeEnabled("default".equals(syncMode));
+		if (!moduleConfig.isUseProjectDefaultSyncModeEnabled()) {
+			moduleConfig.setSyncMode(SyncMode.valueOf(syncMode));
+		}
+
+		// handle the module version
+		moduleConfig.setSetSpecificModuleVersionEnabled(StringUtils.isNotBlank(syncMode));
+		if (moduleConfig.isSetSpecificModuleVersionEnabled()) {
+			moduleConfig.setModuleVersion(moduleVersion);
+		}
+
+		return moduleConfig;
+	}
+
+	/**
+	 * A parsed module configuration together with the modification date and size of the file it was read from
+	 */
+	private static class CachedModuleConfiguration {
+		private final long lastModified;
+		private final long length;
+		private final OpenCmsModuleConfigurationData moduleConfig;
+
+		private CachedModuleConfiguration(long lastModified, long length, OpenCmsModuleConfigurationData moduleConfig) {
+			this.lastModified = lastModified;
+			this.length = length;
+			this.moduleConfig = moduleConfig;
+		}
+	}
+}
@@ -132,6 +132,8 @@ public class OpenCmsPluginConfigurable implements Configurable {
 			if (vfsAdapter != null) {
 				vfsAdapter.setUser(configurationData.getUsername());
 				vfsAdapter.setPassword(configurationData.getPassword());
+				vfsAdapter.setChildrenPageSize(configurationData.getCmisChildrenPageSize());
+				vfsAdapter.setPullFsyncEnabled(configurationData.isPullFsyncEnabled());
 			}
 
 			if (configurationData.isPluginConnectorEnabled()) {
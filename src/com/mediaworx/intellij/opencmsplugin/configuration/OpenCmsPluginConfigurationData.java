@@ -25,7 +25,10 @@
 package com.mediaworx.intellij.opencmsplugin.configuration;
 
 import com.mediaworx.intellij.opencmsplugin.connector.AutoPublishMode;
+import com.mediaworx.intellij.opencmsplugin.sync.ChangeDetectionMode;
 import com.mediaworx.intellij.opencmsplugin.sync.SyncMode;
+import com.mediaworx.intellij.opencmsplugin.sync.VfsAdapter;
+import com.mediaworx.intellij.opencmsplugin.tools.IgnoredResourceMatcher;
 import org.apache.commons.lang3.StringUtils;
 
 /**
@@ -33,6 +36,9 @@ import org.apache.commons.lang3.StringUtils;
  */
 public class OpenCmsPluginConfigurationData {
 
+	/** default number of parallel workers (each with its own CMIS session) used to push/pull files */
+	public static final int DEFAULT_SYNC_WORKER_COUNT = 4;
+
 	private boolean openCmsPluginEnabled = false;
     private String repository;
     private String username;
@@ -45,6 +51,7 @@ public class OpenCmsPluginConfigurationData {
 	private String[] ignoredFilesArray;
 	private String ignoredPaths;
 	private String[] ignoredPathsArray;
+	private IgnoredResourceMatcher ignoredResourceMatcher = IgnoredResourceMatcher.EMPTY;
 	private String moduleZipTargetFolderPath;
 	private boolean pluginConnectorEnabled;
 	private String connectorUrl;
@@ -56,6 +63,15 @@ public class OpenCmsPluginConfigurationData {
 	private boolean useMetaDateVariablesEnabled;
 	private boolean useMetaIdVariablesEnabled;
 	private boolean useMetaVariablesEnabled;
+	private int syncWorkerCount = DEFAULT_SYNC_WORKER_COUNT;
+	private boolean vfsTreePrefetchEnabled = true;
+	private ChangeDetectionMode changeDetectionMode;
+	private int cmisChildrenPageSize = VfsAdapter.DEFAULT_CHILDREN_PAGE_SIZE;
+	private boolean pullFsyncEnabled;
+	private boolean pipelinedSyncEnabled;
+	private boolean lazyActivationEnabled = true;
+	private boolean connectionWarmUpEnabled;
+	private boolean syncFastPathEnabled = true;
 
 	/**
 	 * Flag denoting if the plugin is enabled for the project.
@@ -230,6 +246,7 @@ public class OpenCmsPluginConfigurationData {
 		else {
 			ignoredFilesArray = new String[0];
 		}
+		ignoredResourceMatcher = new IgnoredResourceMatcher(ignoredFilesArray, ignoredPathsArray);
 	}
 
 	/**
@@ -265,6 +282,15 @@ public class OpenCmsPluginConfigurationData {
 		else {
 			ignoredPathsArray = new String[0];
 		}
+		ignoredResourceMatcher = new IgnoredResourceMatcher(ignoredFilesArray, ignoredPathsArray);
+	}
+
+	/**
+	 * Gets the matcher for the ignored files and folders, compiled whenever the ignored file or folder lists change
+	 * @return the matcher for ignored files and folders
+	 */
+	public IgnoredResourceMatcher getIgnoredResourceMatcher() {
+		return ignoredResourceMatcher;
 	}
 
 	/**
@@ -470,6 +496,167 @@ public class OpenCmsPluginConfigurationData {
 		}
 	}
 
+	/**
+	 * Gets the number of parallel workers used to push, pull or delete files during a sync. Every worker uses its
+	 * own CMIS session. A value of 1 disables parallel syncing.
+	 * @return the number of sync workers (at least 1)
+	 */
+	public int getSyncWorkerCount() {
+		return syncWorkerCount > 0 ? syncWorkerCount : 1;
+	}
+
+	/**
+	 * Sets the number of parallel workers used to push, pull or delete files during a sync. Every worker uses its
+	 * own CMIS session.
+	 * @param syncWorkerCount the number of sync workers, 1 disables parallel syncing
+	 */
+	public void setSyncWorkerCount(int syncWorkerCount) {
+		this.syncWorkerCount = syncWorkerCount;
+	}
+
+	/**
+	 * Flag denoting if the VFS subtrees to be synced are fetched in bulk before the sync analysis (using CMIS
+	 * getDescendants if the repository supports it). If disabled, each VFS resource is retrieved separately.
+	 * @return <code>true</code> if VFS tree prefetching is enabled, <code>false</code> otherwise
+	 */
+	public boolean isVfsTreePrefetchEnabled() {
+		return vfsTreePrefetchEnabled;
+	}
+
+	/**
+	 * Sets the flag denoting if the VFS subtrees to be synced are fetched in bulk before the sync analysis
+	 * @param vfsTreePrefetchEnabled <code>true</code> if VFS tree prefetching should be enabled, <code>false</code>
+	 *                               otherwise
+	 */
+	public void setVfsTreePrefetchEnabled(boolean vfsTreePrefetchEnabled) {
+		this.vfsTreePrefetchEnabled = vfsTreePrefetchEnabled;
+	}
+
+	/**
+	 * Returns the configured strategy used to detect changed files. The strategy can be TIMESTAMP, SIZE_AND_TIMESTAMP
+	 * or CONTENT_DIGEST.
+	 * @return the configured change detection mode (TIMESTAMP if none is configured)
+	 * @see ChangeDetectionMode
+	 */
+	public ChangeDetectionMode getChangeDetectionMode() {
+		return changeDetectionMode != null ? changeDetectionMode : ChangeDetectionMode.TIMESTAMP;
+	}
+
+	/**
+	 * Sets the strategy used to detect changed files
+	 * @param changeDetectionMode the change detection mode (TIMESTAMP, SIZE_AND_TIMESTAMP or CONTENT_DIGEST)
+	 */
+	public void setChangeDetectionMode(ChangeDetectionMode changeDetectionMode) {
+		this.changeDetectionMode = changeDetectionMode;
+	}
+
+	/**
+	 * Gets the number of children retrieved per page when VFS folder contents are listed via CMIS
+	 * @return the configured page size
+	 */
+	public int getCmisChildrenPageSize() {
+		return cmisChildrenPageSize;
+	}
+
+	/**
+	 * Sets the number of children retrieved per page when VFS folder contents are listed via CMIS. Large page sizes
+	 * reduce the number of round trips for folders with many children.
+	 * @param cmisChildrenPageSize the page size
+	 */
+	public void setCmisChildrenPageSize(int cmisChildrenPageSize) {
+		this.cmisChildrenPageSize = cmisChildrenPageSize;
+	}
+
+	/**
+	 * Flag denoting if pulled files are forced to disk (fsync) before they are moved into place.
+	 * @return <code>true</code> if pulled files are synced to disk, <code>false</code> otherwise
+	 */
+	public boolean isPullFsyncEnabled() {
+		return pullFsyncEnabled;
+	}
+
+	/**
+	 * Sets the flag denoting if pulled files are forced to disk (fsync) before they are moved into place. Makes pulls
+	 * safe against power failures at the cost of throughput.
+	 * @param pullFsyncEnabled <code>true</code> if pulled files should be synced to disk, <code>false</code> otherwise
+	 */
+	public void setPullFsyncEnabled(boolean pullFsyncEnabled) {
+		this.pullFsyncEnabled = pullFsyncEnabled;
+	}
+
+	/**
+	 * Flag denoting if pipelined sync is enabled. In pipelined mode resources are synced while the sync analysis is
+	 * still running, no confirmation dialog is shown.
+	 * @return <code>true</code> if pipelined sync is enabled, <code>false</code> otherwise
+	 */
+	public boolean isPipelinedSyncEnabled() {
+		return pipelinedSyncEnabled;
+	}
+
+	/**
+	 * Sets the flag denoting if pipelined sync is enabled. In pipelined mode resources are synced while the sync
+	 * analysis is still running, no confirmation dialog is shown.
+	 * @param pipelinedSyncEnabled <code>true</code> if pipelined sync should be enabled, <code>false</code> otherwise
+	 */
+	public void setPipelinedSyncEnabled(boolean pipelinedSyncEnabled) {
+		this.pipelinedSyncEnabled = pipelinedSyncEnabled;
+	}
+
+	/**
+	 * Flag denoting if the plugin is activated lazily. If enabled, opening a project only registers the plugin's
+	 * menus and listeners, the OpenCms configuration, the OpenCms modules and the connector are initialized by a
+	 * background task or by the first OpenCms action, whichever comes first.
+	 * @return <code>true</code> if lazy activation is enabled, <code>false</code> otherwise
+	 */
+	public boolean isLazyActivationEnabled() {
+		return lazyActivationEnabled;
+	}
+
+	/**
+	 * Sets the flag denoting if the plugin is activated lazily
+	 * @param lazyActivationEnabled <code>true</code> if lazy activation should be enabled, <code>false</code> otherwise
+	 */
+	public void setLazyActivationEnabled(boolean lazyActivationEnabled) {
+		this.lazyActivationEnabled = lazyActivationEnabled;
+	}
+
+	/**
+	 * Flag denoting if the CMIS session and the connector connection are opened in the background after the plugin
+	 * was activated, so the first sync doesn't have to wait for them.
+	 * @return <code>true</code> if the connection warm-up is enabled, <code>false</code> otherwise
+	 */
+	public boolean isConnectionWarmUpEnabled() {
+		return connectionWarmUpEnabled;
+	}
+
+	/**
+	 * Sets the flag denoting if the CMIS session and the connector connection are opened in the background after
+	 * the plugin was activated
+	 * @param connectionWarmUpEnabled <code>true</code> if the connection warm-up should be enabled,
+	 *                                <code>false</code> otherwise
+	 */
+	public void setConnectionWarmUpEnabled(boolean connectionWarmUpEnabled) {
+		this.connectionWarmUpEnabled = connectionWarmUpEnabled;
+	}
+
+	/**
+	 * Flag denoting if small selections of plain files (e.g. the file in the editor) are synced using the fast path,
+	 * without modal progress dialog and without clearing the CMIS session cache.
+	 * @return <code>true</code> if the sync fast path is enabled, <code>false</code> otherwise
+	 */
+	public boolean isSyncFastPathEnabled() {
+		return syncFastPathEnabled;
+	}
+
+	/**
+	 * Sets the flag denoting if small selections of plain files are synced using the fast path
+	 * @param syncFastPathEnabled <code>true</code> if the sync fast path should be enabled, <code>false</code>
+	 *                            otherwise
+	 */
+	public void setSyncFastPathEnabled(boolean syncFastPathEnabled) {
+		this.syncFastPathEnabled = syncFastPathEnabled;
+	}
+
 	/**
 	 * Internal utility method to strip trailing path separators from path Strings.
 	 * @param s the path String
@@ -32,6 +32,7 @@ import org.apache.http.HttpEntity;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
@@ -159,6 +160,36 @@ public class OpenCmsPluginConnector {
 		this.useMetaIdVariables = useMetaIdVariables;
 	}
 
+	/**
+	 * Opens the http connection to the connector, so the first connector action doesn't have to wait for it. The
+	 * connection is kept alive by the HttpClient's connection pool.
+	 * @return <code>true</code> if the connector could be reached, <code>false</code> otherwise
+	 */
+	public boolean warmUp() {
+		if (connectorUrl == null) {
+			return false;
+		}
+		try {
+			CloseableHttpResponse response = httpClient.execute(new HttpHead(connectorUrl));
+			try {
+				EntityUtils.consume(response.getEntity());
+				LOG.info("Connector warm-up status: " + response.getStatusLine().getStatusCode());
+				return true;
+			}
+			finally {
+				response.close();
+			}
+		}
+		catch (IOException e) {
+			LOG.info("Connector warm-up failed, the connector can't be reached at " + connectorUrl);
+			return false;
+		}
+		catch (IllegalArgumentException e) {
+			LOG.info("Connector warm-up failed, invalid connector URL " + connectorUrl);
+			return false;
+		}
+	}
+
 	/**
 	 * Gets the resource meta data for the given module resources
 	 * @param moduleResources   a list of module resources for which meta data is to be retrieved
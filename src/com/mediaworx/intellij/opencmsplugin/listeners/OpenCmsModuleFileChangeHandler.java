@@ -24,10 +24,12 @@
 
 package com.mediaworx.intellij.opencmsplugin.listeners;
 
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.ui.Messages;
 import com.intellij.openapi.util.io.FileUtil;
-import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.mediaworx.intellij.opencmsplugin.OpenCmsPlugin;
 import com.mediaworx.intellij.opencmsplugin.configuration.OpenCmsPluginConfigurationData;
@@ -40,6 +42,7 @@ import com.mediaworx.intellij.opencmsplugin.opencms.OpenCmsModuleExportPoint;
 import com.mediaworx.intellij.opencmsplugin.opencms.OpenCmsModules;
 import com.mediaworx.intellij.opencmsplugin.sync.SyncJob;
 import com.mediaworx.intellij.opencmsplugin.sync.VfsAdapter;
+import com.mediaworx.intellij.opencmsplugin.tools.VfsRefreshCoalescer;
 import com.mediaworx.intellij.opencmsplugin.toolwindow.OpenCmsToolWindowConsole;
 import com.mediaworx.opencms.moduleutils.manifestgenerator.OpenCmsModuleManifestGenerator;
 import org.apache.chemistry.opencmis.client.api.CmisObject;
@@ -47,6 +50,7 @@ import org.apache.chemistry.opencmis.client.api.FileableCmisObject;
 import org.apache.chemistry.opencmis.client.api.Folder;
 import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.commons.io.FileUtils;
+import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
 import java.io.IOException;
@@ -59,7 +63,8 @@ import java.util.*;
  * late 2016, see
  * <a href="https://github.com/JetBrains/intellij-community/commit/905e2faabc568831fe6596b8a2991c96f095f255">
  *     https://github.com/JetBrains/intellij-community/commit/905e2faabc568831fe6596b8a2991c96f095f255
- * </a> (presenting dialogs in file write/change events, possible before this commit, was now prohibited)
+ * </a> (presenting dialogs in file write/change events, possible before this commit, was now prohibited).
+ * Only the confirmation dialogs are shown on the EDT, the confirmed changes are executed in a background task.
  *
  * @author initial author: Kai Widmann - widmann@mediaworx.com, 20.11.17
  */
@@ -102,31 +107,30 @@ public class OpenCmsModuleFileChangeHandler implements Runnable {
 	}
 
 	/**
-	 * Handles all the changes collected previously and is also used  to present a dialog asking the user if the file
-	 * change should be reflected in the OpenCms VFS as well.
+	 * Handles all the changes collected previously. The dialogs asking the user if the file changes should be
+	 * reflected in the OpenCms VFS as well are presented on the calling thread (the EDT), the confirmed VFS operations,
+	 * export point and meta data updates and the publish are executed in a cancellable background task.
 	 */
 	void handleChanges() {
-		try {
-			if (getNumAffected() > 0) {
-				boolean isPublishRequired = handleAffectedFiles();
-
-				// Publish the affected VFS resources (if publish is enabled)
-				if (isPublishRequired && config.isPluginConnectorEnabled() && config.getAutoPublishMode() != AutoPublishMode.OFF) {
-					publishAffectedVfsResources();
-				}
+		if (getNumAffected() > 0) {
+			if (vfsFilesToBeDeleted.size() > 0 && !confirmDeletes()) {
+				vfsFilesToBeDeleted.clear();
 			}
-			if (refreshOpenCmsModuleConfiguration) {
-				plugin.queueOpenCmsModuleUpdate();
+			if (vfsFilesToBeMoved.size() > 0 && !confirmMoves()) {
+				vfsFilesToBeMoved.clear();
+			}
+			if (vfsFilesToBeRenamed.size() > 0 && !confirmRenames()) {
+				vfsFilesToBeRenamed.clear();
+			}
+			if (getNumAffected() > 0) {
+				console = plugin.getConsole();
+				console.clear();
+				plugin.showConsole();
+				new VfsChangeTask().queue();
 			}
 		}
-		catch (CmsConnectionException e) {
-			Messages.showDialog("Error syncing file deletion/move/rename to OpenCms:\n" + e.getMessage(), "Error", new String[]{"Ok"}, 0, Messages.getErrorIcon());
-		}
-		finally {
-			vfsFilesToBeDeleted.clear();
-			vfsFilesToBeMoved.clear();
-			vfsFilesToBeRenamed.clear();
-			refreshFiles.clear();
+		if (refreshOpenCmsModuleConfiguration) {
+			plugin.queueOpenCmsModuleUpdate();
 			refreshOpenCmsModuleConfiguration = false;
 		}
 	}
@@ -166,46 +170,134 @@ public class OpenCmsModuleFileChangeHandler implements Runnable {
 		return vfsAdapter;
 	}
 
+	/**
+	 * Background task executing the confirmed deletes, moves and renames in the VFS, followed by the publish (if
+	 * auto publish is enabled)
+	 */
+	private class VfsChangeTask extends Task.Backgroundable {
+
+		private VfsChangeTask() {
+			super(plugin.getProject(), "Syncing file deletes/moves/renames to OpenCms ...", true);
+		}
+
+		@Override
+		public void run(@NotNull ProgressIndicator indicator) {
+			long start = System.currentTimeMillis();
+			try {
+				boolean isPublishRequired = handleAffectedFiles(indicator);
+
+				// Publish the affected VFS resources (if publish is enabled)
+				if (isPublishRequired && !indicator.isCanceled() && config.isPluginConnectorEnabled() && config.getAutoPublishMode() != AutoPublishMode.OFF) {
+					indicator.setText("Publishing affected resources ...");
+					indicator.setText2(null);
+					publishAffectedVfsResources();
+				}
+			}
+			catch (CmsConnectionException e) {
+				showErrorDialog("Error syncing file deletion/move/rename to OpenCms:\n" + e.getMessage(), "Error");
+			}
+			finally {
+				refreshAffectedFiles();
+				long duration = System.currentTimeMillis() - start;
+				LOG.info("File deletes/moves/renames synced to OpenCms in " + duration + " ms");
+				console.info("Finished in " + duration + " ms");
+			}
+		}
+	}
 
 	/**
 	 * Handles all the lists of deleted, moved and renamed files collected in
 	 * {@link OpenCmsModuleFileChangeListener#handleFileDeleteEvent(com.intellij.openapi.vfs.newvfs.events.VFileEvent)},
 	 * {@link OpenCmsModuleFileChangeListener#handleFileMoveEvent(com.intellij.openapi.vfs.newvfs.events.VFileEvent)} and
 	 * {@link OpenCmsModuleFileChangeListener#handleFileRenameEvent(com.intellij.openapi.vfs.newvfs.events.VFileEvent)}
+	 * (only the changes confirmed by the user are left in those lists)
 	 *
+	 * @param indicator the progress indicator of the background task
 	 * @return <code>true</code> if any action was executed that requires a publish (if auto publish is enabled)
 	 *
 	 * @throws CmsConnectionException
 	 */
-	private boolean handleAffectedFiles() throws CmsConnectionException {
+	private boolean handleAffectedFiles(ProgressIndicator indicator) throws CmsConnectionException {
 
-		boolean isPublishRequired = false;
+		int numAffected = getNumAffected();
+		int numDone = 0;
 
 		// Delete files
-		if (vfsFilesToBeDeleted.size() > 0) {
-			isPublishRequired = deleteFiles();
+		for (VfsFileDeleteInfo deleteInfo : vfsFilesToBeDeleted) {
+			if (isCanceled(indicator, numAffected - numDone)) {
+				return numDone > 0;
+			}
+			updateProgress(indicator, "Deleting files/folders ...", deleteInfo.vfsPath, numDone, numAffected);
+			deleteFile(deleteInfo);
+			numDone++;
 		}
 		// Move files
-		if (vfsFilesToBeMoved.size() > 0) {
-			isPublishRequired = moveFiles();
+		for (VfsFileMoveInfo moveInfo : vfsFilesToBeMoved) {
+			if (isCanceled(indicator, numAffected - numDone)) {
+				return numDone > 0;
+			}
+			updateProgress(indicator, "Moving files/folders ...", moveInfo.oldVfsPath, numDone, numAffected);
+			moveFile(moveInfo);
+			numDone++;
 		}
 		// Rename files
-		if (vfsFilesToBeRenamed.size() > 0) {
-			isPublishRequired = renameFiles();
+		for (VfsFileRenameInfo renameInfo : vfsFilesToBeRenamed) {
+			if (isCanceled(indicator, numAffected - numDone)) {
+				return numDone > 0;
+			}
+			updateProgress(indicator, "Renaming files/folders ...", renameInfo.oldVfsPath, numDone, numAffected);
+			renameFile(renameInfo);
+			numDone++;
 		}
+		indicator.setFraction(1.0);
 
-		// Refresh the affected files in the IDEA VFS after a short delay (to avoid event collision)
-		if (refreshFiles.size() > 0) {
-			final List<File> filesToBeRefreshedLater = new ArrayList<File>(refreshFiles);
-			new Timer().schedule(new TimerTask() {
-				@Override
-				public void run() {
-					LocalFileSystem.getInstance().refreshIoFiles(filesToBeRefreshedLater, true, false, null);
-				}
-			}, 2000);
+		return numDone > 0;
+	}
+
+	/**
+	 * Checks if the background task was cancelled by the user and reports the skipped operations in the console
+	 *
+	 * @param indicator    the progress indicator of the background task
+	 * @param numRemaining the number of operations that have not been executed yet
+	 * @return <code>true</code> if the task was cancelled, <code>false</code> otherwise
+	 */
+	private boolean isCanceled(ProgressIndicator indicator, int numRemaining) {
+		if (indicator.isCanceled()) {
+			console.notice("Cancelled, " + numRemaining + " file/folder operation(s) were skipped");
+			return true;
 		}
+		return false;
+	}
+
+	/**
+	 * Updates the progress indicator of the background task
+	 */
+	private static void updateProgress(ProgressIndicator indicator, String text, String vfsPath, int numDone, int numAffected) {
+		indicator.setText(text);
+		indicator.setText2(vfsPath);
+		indicator.setFraction((double)numDone / numAffected);
+	}
+
+	/**
+	 * Refreshes the affected files in the IDEA VFS after a short delay (to avoid event collision)
+	 */
+	private void refreshAffectedFiles() {
+		VfsRefreshCoalescer.getInstance().refreshLater(refreshFiles, 2000);
+	}
 
-		return isPublishRequired;
+	/**
+	 * Presents an error dialog on the EDT (dialogs can't be shown from the background task)
+	 *
+	 * @param message the error message
+	 * @param title   the dialog title
+	 */
+	private static void showErrorDialog(final String message, final String title) {
+		ApplicationManager.getApplication().invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				Messages.showDialog(message, title, new String[]{"Ok"}, 0, Messages.getErrorIcon());
+			}
+		});
 	}
 
 	/**
@@ -233,156 +325,156 @@ public class OpenCmsModuleFileChangeHandler implements Runnable {
 	}
 
 	/**
-	 * Presents a dialog asking the user if files are to be deleted from the VFS and handles the deletions if the user
-	 * chooses to do so
+	 * Presents a dialog asking the user if files are to be deleted from the VFS
 	 *
 	 * @return <code>true</code> if the user elected to delete files, <code>false</code> if the user cancelled the
 	 * deletion
-	 *
-	 * @throws CmsConnectionException if the connection to OpenCms failed
 	 */
-	private boolean deleteFiles() throws CmsConnectionException {
+	private boolean confirmDeletes() {
 		StringBuilder msg = new StringBuilder("Do you want to delete the following files/folders from the OpenCms VFS?");
 		for (OpenCmsModuleFileChangeHandler.VfsFileDeleteInfo vfsFileToBeDeleted : vfsFilesToBeDeleted) {
 			msg.append("\n").append(vfsFileToBeDeleted.vfsPath);
 		}
 
 		int dlgStatus = Messages.showOkCancelDialog(msg.toString(), "Delete Files/Folders?", Messages.getQuestionIcon());
+		return dlgStatus == 0;
+	}
 
-		if (dlgStatus == 0) {
-			if (console == null) {
-				console = plugin.getConsole();
-			}
+	/**
+	 * Deletes a file from the VFS, removes exported files and meta data files
+	 *
+	 * @param deleteInfo info about the resource to be deleted
+	 *
+	 * @throws CmsConnectionException if the connection to OpenCms failed
+	 */
+	private void deleteFile(VfsFileDeleteInfo deleteInfo) throws CmsConnectionException {
+		long start = System.currentTimeMillis();
+		console.info("DELETE: " + deleteInfo.vfsPath);
+		getVfsAdapter().deleteResource(deleteInfo.vfsPath);
+		// check export points
+		deleteExportedFileIfNecessary(deleteInfo.vfsPath);
+
+		// handle meta data files
+		boolean isDirectory = deleteInfo.isDirectory;
+		String metaDataFilePath = getMetaDataFilePath(deleteInfo.ocmsModule, deleteInfo.vfsPath, isDirectory);
+		console.info("Remove meta data file " + metaDataFilePath);
+		File metaDataFile = new File(metaDataFilePath);
+		FileUtils.deleteQuietly(metaDataFile);
+		refreshFiles.add(metaDataFile);
 
-			console.clear();
-			plugin.showConsole();
-			for (OpenCmsModuleFileChangeHandler.VfsFileDeleteInfo deleteInfo : vfsFilesToBeDeleted) {
-				console.info("DELETE: " + deleteInfo.vfsPath);
-				getVfsAdapter().deleteResource(deleteInfo.vfsPath);
-				// check export points
-				deleteExportedFileIfNecessary(deleteInfo.vfsPath);
-
-				// handle meta data files
-				boolean isDirectory = deleteInfo.isDirectory;
-				String metaDataFilePath = getMetaDataFilePath(deleteInfo.ocmsModule, deleteInfo.vfsPath, isDirectory);
-				console.info("Remove meta data file " + metaDataFilePath);
-				File metaDataFile = new File(metaDataFilePath);
-				FileUtils.deleteQuietly(metaDataFile);
-				refreshFiles.add(metaDataFile);
-
-				if (isDirectory) {
-					String metaFolderPath = getMetaDataFilePathWithoutSuffix(deleteInfo.ocmsModule, deleteInfo.vfsPath);
-					console.info("Remove meta data folder " + metaFolderPath);
-					File metaFolder = new File(metaFolderPath);
-					FileUtils.deleteQuietly(metaFolder);
-					refreshFiles.add(metaFolder);
-				}
-			}
-			return true;
+		if (isDirectory) {
+			String metaFolderPath = getMetaDataFilePathWithoutSuffix(deleteInfo.ocmsModule, deleteInfo.vfsPath);
+			console.info("Remove meta data folder " + metaFolderPath);
+			File metaFolder = new File(metaFolderPath);
+			FileUtils.deleteQuietly(metaFolder);
+			refreshFiles.add(metaFolder);
 		}
-		return false;
+		console.info("Deleted " + deleteInfo.vfsPath + " in " + (System.currentTimeMillis() - start) + " ms");
 	}
 
 	/**
-	 * Presents a dialog asking the user if files are to be moved in the VFS and handles the moves if the user
-	 * chooses to do so
+	 * Presents a dialog asking the user if files are to be moved in the VFS
 	 *
 	 * @return <code>true</code> if the user elected to move files, <code>false</code> if the user cancelled the
 	 * move
-	 *
-	 * @throws CmsConnectionException if the connection to OpenCms failed
 	 */
-	private boolean moveFiles() throws CmsConnectionException {
+	private boolean confirmMoves() {
 		StringBuilder msg = new StringBuilder("Do you want to move the following files/folders in the OpenCms VFS as well?");
 		for (OpenCmsModuleFileChangeHandler.VfsFileMoveInfo vfsFileToBeMoved : vfsFilesToBeMoved) {
 			msg.append("\n").append(vfsFileToBeMoved.oldVfsPath);
 		}
 
 		int dlgStatus = Messages.showOkCancelDialog(msg.toString(), "Move Files/Folders?", Messages.getQuestionIcon());
+		return dlgStatus == 0;
+	}
 
-		if (dlgStatus == 0) {
-			if (console == null) {
-				console = plugin.getConsole();
+	/**
+	 * Moves a file in the VFS, handles export points and moves meta data files
+	 *
+	 * @param moveInfo info about the resource to be moved
+	 *
+	 * @throws CmsConnectionException if the connection to OpenCms failed
+	 */
+	private void moveFile(VfsFileMoveInfo moveInfo) throws CmsConnectionException {
+		long start = System.currentTimeMillis();
+		try {
+			console.info("MOVE: " + moveInfo.oldVfsPath + " to " + moveInfo.newParentPath);
+			Folder oldParent = (Folder) getVfsAdapter().getVfsObject(moveInfo.oldParentPath);
+			Folder newParent = (Folder) getVfsAdapter().getVfsObject(moveInfo.newParentPath);
+			if (newParent == null) {
+				newParent = getVfsAdapter().createFolder(moveInfo.newParentPath);
 			}
-			console.clear();
-			plugin.showConsole();
-			for (OpenCmsModuleFileChangeHandler.VfsFileMoveInfo moveInfo : vfsFilesToBeMoved) {
-				try {
-					console.info("MOVE: " + moveInfo.oldVfsPath + " to " + moveInfo.newParentPath);
-					Folder oldParent = (Folder) getVfsAdapter().getVfsObject(moveInfo.oldParentPath);
-					Folder newParent = (Folder) getVfsAdapter().getVfsObject(moveInfo.newParentPath);
-					if (newParent == null) {
-						newParent = getVfsAdapter().createFolder(moveInfo.newParentPath);
-					}
-					FileableCmisObject resource = (FileableCmisObject) getVfsAdapter().getVfsObject(moveInfo.oldVfsPath);
-					resource.move(oldParent, newParent);
-
-					// handle export points
-					handleExportPointsForMovedResources(moveInfo.oldVfsPath, moveInfo.newVfsPath, moveInfo.newIdeaVFile.getPath());
-
-					// handle meta data files
-					handleMetaDataForMovedResources(moveInfo.oldOcmsModule, moveInfo.newOcmsModule, moveInfo.oldVfsPath, moveInfo.newVfsPath, moveInfo.newIdeaVFile.isDirectory());
-				}
-				catch (CmsPermissionDeniedException e) {
-					Messages.showDialog("Error moving files/folders." + e.getMessage(),
-							"Error", new String[]{"Ok"}, 0, Messages.getErrorIcon());
-				}
+			FileableCmisObject resource = (FileableCmisObject) getVfsAdapter().getVfsObject(moveInfo.oldVfsPath);
+			// the objects are null if the connection to OpenCms failed in the meantime
+			if (oldParent == null || newParent == null || resource == null) {
+				LOG.warn("Error moving " + moveInfo.oldVfsPath + ": the resource or its parent folders could not be loaded through CMIS");
+				console.error("Error moving " + moveInfo.oldVfsPath + ": the resource or its parent folders could not be loaded through CMIS");
+				return;
 			}
-			return true;
+			resource.move(oldParent, newParent);
+
+			// handle export points
+			handleExportPointsForMovedResources(moveInfo.oldVfsPath, moveInfo.newVfsPath, moveInfo.newIdeaVFile.getPath());
+
+			// handle meta data files
+			handleMetaDataForMovedResources(moveInfo.oldOcmsModule, moveInfo.newOcmsModule, moveInfo.oldVfsPath, moveInfo.newVfsPath, moveInfo.newIdeaVFile.isDirectory());
+			console.info("Moved " + moveInfo.oldVfsPath + " in " + (System.currentTimeMillis() - start) + " ms");
+		}
+		catch (CmsPermissionDeniedException e) {
+			console.error("Error moving " + moveInfo.oldVfsPath + ": " + e.getMessage());
+			showErrorDialog("Error moving files/folders." + e.getMessage(), "Error");
 		}
-		return false;
 	}
 
 	/**
-	 * Presents a dialog asking the user if files are to be renamed in the VFS and handles the renames if the user
-	 * chooses to do so
+	 * Presents a dialog asking the user if files are to be renamed in the VFS
 	 *
 	 * @return <code>true</code> if the user elected to rename files, <code>false</code> if the user cancelled the
 	 * rename
-	 *
-	 * @throws CmsConnectionException if the connection to OpenCms failed
 	 */
-	private boolean renameFiles() throws CmsConnectionException {
+	private boolean confirmRenames() {
 		StringBuilder msg = new StringBuilder("Do you want to rename the following files/folders in the OpenCms VFS as well?");
 		for (OpenCmsModuleFileChangeHandler.VfsFileRenameInfo vfsFileToBeRenamed : vfsFilesToBeRenamed) {
 			msg.append("\n").append(vfsFileToBeRenamed.oldVfsPath).append(" -> ").append(vfsFileToBeRenamed.newName);
 		}
 
 		int dlgStatus = Messages.showOkCancelDialog(msg.toString(), "Move Files/Folders?", Messages.getQuestionIcon());
+		return dlgStatus == 0;
+	}
 
-		if (dlgStatus == 0) {
-			if (console == null) {
-				console = plugin.getConsole();
-			}
-			console.clear();
-			plugin.showConsole();
-			for (OpenCmsModuleFileChangeHandler.VfsFileRenameInfo renameInfo : vfsFilesToBeRenamed) {
-				console.info("RENAME: " + renameInfo.oldVfsPath + " to " + renameInfo.newName);
-				try {
-					CmisObject file = getVfsAdapter().getVfsObject(renameInfo.oldVfsPath);
-					if (file == null) {
-						LOG.warn("Error renaming " + renameInfo.oldVfsPath + ": the resource could not be loaded through CMIS");
-						continue;
-					}
-					HashMap<String, Object> properties = new HashMap<String, Object>();
-					properties.put(PropertyIds.NAME, renameInfo.newName);
-					file.updateProperties(properties);
-
-					// handle export points
-					handleExportPointsForMovedResources(renameInfo.oldVfsPath, renameInfo.newVfsPath, renameInfo.newIdeaVFile.getPath());
-
-					// handle meta data files
-					handleMetaDataForMovedResources(renameInfo.ocmsModule, renameInfo.ocmsModule, renameInfo.oldVfsPath, renameInfo.newVfsPath, renameInfo.newIdeaVFile.isDirectory());
-				}
-				catch (CmsPermissionDeniedException e) {
-					LOG.warn("Exception moving files - permission denied", e);
-					Messages.showDialog("Error moving files/folders. " + e.getMessage(),
-							"Error", new String[]{"Ok"}, 0, Messages.getErrorIcon());
-				}
+	/**
+	 * Renames a file in the VFS, handles export points and moves meta data files
+	 *
+	 * @param renameInfo info about the resource to be renamed
+	 *
+	 * @throws CmsConnectionException if the connection to OpenCms failed
+	 */
+	private void renameFile(VfsFileRenameInfo renameInfo) throws CmsConnectionException {
+		long start = System.currentTimeMillis();
+		console.info("RENAME: " + renameInfo.oldVfsPath + " to " + renameInfo.newName);
+		try {
+			CmisObject file = getVfsAdapter().getVfsObject(renameInfo.oldVfsPath);
+			if (file == null) {
+				LOG.warn("Error renaming " + renameInfo.oldVfsPath + ": the resource could not be loaded through CMIS");
+				console.error("Error renaming " + renameInfo.oldVfsPath + ": the resource could not be loaded through CMIS");
+				return;
 			}
-			return true;
+			HashMap<String, Object> properties = new HashMap<String, Object>();
+			properties.put(PropertyIds.NAME, renameInfo.newName);
+			file.updateProperties(properties);
+
+			// handle export points
+			handleExportPointsForMovedResources(renameInfo.oldVfsPath, renameInfo.newVfsPath, renameInfo.newIdeaVFile.getPath());
+
+			// handle meta data files
+			handleMetaDataForMovedResources(renameInfo.ocmsModule, renameInfo.ocmsModule, renameInfo.oldVfsPath, renameInfo.newVfsPath, renameInfo.newIdeaVFile.isDirectory());
+			console.info("Renamed " + renameInfo.oldVfsPath + " in " + (System.currentTimeMillis() - start) + " ms");
+		}
+		catch (CmsPermissionDeniedException e) {
+			LOG.warn("Exception moving files - permission denied", e);
+			console.error("Error renaming " + renameInfo.oldVfsPath + ": " + e.getMessage());
+			showErrorDialog("Error moving files/folders. " + e.getMessage(), "Error");
 		}
-		return false;
 	}
 
 	/**
@@ -521,16 +613,61 @@ public class OpenCmsModuleFileChangeHandler implements Runnable {
 				console = plugin.getConsole();
 			}
 			try {
+				long start = System.currentTimeMillis();
 				plugin.getPluginConnector().publishResources(affectedResourcePaths, false);
-				console.info("PUBLISH: A direct publish session was started successfully");
+				console.info("PUBLISH: A direct publish session was started successfully (" + (System.currentTimeMillis() - start) + " ms)");
 			}
 			catch (OpenCmsConnectorException e) {
 				console.error(e.getMessage());
 			}
 			catch (IOException e) {
 				LOG.warn("There was an exception while publishing resources after a file change event", e);
-				Messages.showDialog("There was an Error during publish.\nIs OpenCms running?\n\n" + e.getMessage(),
-						"OpenCms Publish Error", new String[]{"Ok"}, 0, Messages.getErrorIcon());
+				showErrorDialog("There was an Error during publish.\nIs OpenCms running?\n\n" + e.getMessage(), "OpenCms Publish Error");
+			}
+		}
+	}
+
+	/**
+	 * Returns the VFS paths of all collected resources, the existence of those resources is checked before the
+	 * changes are handled (see {@link #retainExistingVfsResources(Set)})
+	 * @return the VFS paths of the deleted, moved or renamed resources (before the change)
+	 */
+	Set<String> getVfsPathsToCheck() {
+		Set<String> vfsPaths = new LinkedHashSet<String>();
+		for (VfsFileDeleteInfo deleteInfo : vfsFilesToBeDeleted) {
+			vfsPaths.add(deleteInfo.vfsPath);
+		}
+		for (VfsFileMoveInfo moveInfo : vfsFilesToBeMoved) {
+			vfsPaths.add(moveInfo.oldVfsPath);
+		}
+		for (VfsFileRenameInfo renameInfo : vfsFilesToBeRenamed) {
+			vfsPaths.add(renameInfo.oldVfsPath);
+		}
+		return vfsPaths;
+	}
+
+	/**
+	 * Removes all collected resources that don't exist in the VFS, so they're neither presented to the user nor
+	 * handled
+	 * @param existingVfsPaths the VFS paths known to exist
+	 */
+	void retainExistingVfsResources(Set<String> existingVfsPaths) {
+		Iterator<VfsFileDeleteInfo> deleteInfos = vfsFilesToBeDeleted.iterator();
+		while (deleteInfos.hasNext()) {
+			if (!existingVfsPaths.contains(deleteInfos.next().vfsPath)) {
+				deleteInfos.remove();
+			}
+		}
+		Iterator<VfsFileMoveInfo> moveInfos = vfsFilesToBeMoved.iterator();
+		while (moveInfos.hasNext()) {
+			if (!existingVfsPaths.contains(moveInfos.next().oldVfsPath)) {
+				moveInfos.remove();
+			}
+		}
+		Iterator<VfsFileRenameInfo> renameInfos = vfsFilesToBeRenamed.iterator();
+		while (renameInfos.hasNext()) {
+			if (!existingVfsPaths.contains(renameInfos.next().oldVfsPath)) {
+				renameInfos.remove();
 			}
 		}
 	}
@@ -26,8 +26,6 @@ package com.mediaworx.intellij.opencmsplugin.listeners;
 
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
-import com.intellij.openapi.module.Module;
-import com.intellij.openapi.module.ModuleUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.vfs.newvfs.BulkFileListener;
 import com.intellij.openapi.vfs.newvfs.events.*;
@@ -37,13 +35,17 @@ import com.mediaworx.intellij.opencmsplugin.exceptions.CmsConnectionException;
 import com.mediaworx.intellij.opencmsplugin.opencms.OpenCmsModule;
 import com.mediaworx.intellij.opencmsplugin.opencms.OpenCmsModules;
 import com.mediaworx.intellij.opencmsplugin.sync.VfsAdapter;
-import com.mediaworx.intellij.opencmsplugin.tools.PluginTools;
+import com.mediaworx.intellij.opencmsplugin.tools.PluginScheduler;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisPermissionDeniedException;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Listener/handler for delete, move and rename events in the IntelliJ file system. Analyzes changes and uses the
@@ -60,7 +62,13 @@ public class OpenCmsModuleFileChangeListener implements BulkFileListener {
 	private OpenCmsPluginConfigurationData config;
 	private OpenCmsModules openCmsModules;
 
-	private Map<VirtualFile, Module> deletedFileModuleLookup;
+	private Map<VirtualFile, OpenCmsModule> deletedFileModuleLookup;
+
+	/**
+	 * event batches received before the plugin was activated, handled in order as soon as the plugin is activated.
+	 * Only accessed on the event dispatch thread.
+	 */
+	private List<List<VFileEvent>> deferredEventBatches;
 
 	/**
 	 * Creates a new listener/handler for delete, move and rename events in the IntelliJ file system
@@ -68,16 +76,18 @@ public class OpenCmsModuleFileChangeListener implements BulkFileListener {
 	 */
 	public OpenCmsModuleFileChangeListener(OpenCmsPlugin plugin) {
 		this.plugin = plugin;
-		changeHandler = new OpenCmsModuleFileChangeHandler(plugin);
 		config = plugin.getPluginConfiguration();
 		openCmsModules = plugin.getOpenCmsModules();
 
-		deletedFileModuleLookup = new HashMap<VirtualFile, Module>();
+		deletedFileModuleLookup = new HashMap<VirtualFile, OpenCmsModule>();
+		deferredEventBatches = new ArrayList<List<VFileEvent>>();
 	}
 
 	/**
-	 * Handler method that is called before IntelliJ executes the file change, stores a lookup of IntelliJ modules for
-	 * deleted files because the module can't be determined after the delete is executed
+	 * Handler method that is called before IntelliJ executes the file change, stores a lookup of OpenCms modules for
+	 * deleted files (the lookup is done while the deleted files still exist). If the plugin isn't activated yet, the
+	 * lookup is done after the activation (see {@link #after(List)}), which is possible since modules are looked up
+	 * by path only.
 	 * @param vFileEvents   List of file events, provided by IntelliJ
 	 */
 	public void before(@NotNull List<? extends VFileEvent> vFileEvents) {
@@ -87,19 +97,30 @@ public class OpenCmsModuleFileChangeListener implements BulkFileListener {
 			return;
 		}
 
-		// save all modules for deleted files in a lookup map, because IntelliJ can't find the module after the
-		// deletion of directories (ModuleUtil.findModuleForFile returns null in that case)
+		// the modules aren't registered before the plugin is activated
+		if (!plugin.isActivated() || !deferredEventBatches.isEmpty()) {
+			return;
+		}
+		addDeletedFilesToModuleLookup(vFileEvents);
+	}
+
+	/**
+	 * Saves all OpenCms modules for deleted files in a lookup map, the module is found by its base path (without any
+	 * file system access), so deletes outside of OpenCms modules are skipped right away
+	 * @param vFileEvents   List of file events, provided by IntelliJ
+	 */
+	private void addDeletedFilesToModuleLookup(List<? extends VFileEvent> vFileEvents) {
 		for (VFileEvent event : vFileEvents) {
 			if (event instanceof VFileDeleteEvent) {
 				VirtualFile ideaVFile = event.getFile();
 				if (ideaVFile == null) {
 					continue;
 				}
-				Module ideaModule = ModuleUtil.findModuleForFile(ideaVFile, plugin.getProject());
-				if (ideaModule == null) {
+				OpenCmsModule ocmsModule = openCmsModules.getModuleForPath(ideaVFile.getPath());
+				if (ocmsModule == null) {
 					continue;
 				}
-				deletedFileModuleLookup.put(ideaVFile, ideaModule);
+				deletedFileModuleLookup.put(ideaVFile, ocmsModule);
 			}
 		}
 	}
@@ -107,7 +128,10 @@ public class OpenCmsModuleFileChangeListener implements BulkFileListener {
 	/**
 	 * Handler method that is called after the file change has been executed by IntelliJ, analyzes file deletes, moves
 	 * and renames and calls the change handler (in a separate thread) that handles all the changes and is also used
-	 * to present a dialog asking the user if the file change should be reflected in the OpenCms VFS as well.
+	 * to present a dialog asking the user if the file change should be reflected in the OpenCms VFS as well. Which
+	 * of the affected resources exist in the VFS is checked for the whole batch of events at once, on a thread of the
+	 * plugin's CMIS executor, so the IDE isn't blocked by CMIS calls. Events received before the plugin is activated
+	 * are handled after the plugin was activated on a thread of the plugin's I/O executor.
 	 * @param vFileEvents   List of file events, provided by IntelliJ
 	 */
 	public void after(@NotNull List<? extends VFileEvent> vFileEvents) {
@@ -117,21 +141,124 @@ public class OpenCmsModuleFileChangeListener implements BulkFileListener {
 				return;
 			}
 
-			for (VFileEvent event : vFileEvents) {
+			// batches received while earlier batches are still deferred are deferred too, so the order is kept
+			if (!plugin.isActivated() || !deferredEventBatches.isEmpty()) {
+				deferUntilActivated(vFileEvents);
+				return;
+			}
+			handleFileEvents(vFileEvents);
+		}
+		finally {
+			deletedFileModuleLookup.clear();
+		}
+	}
+
+	/**
+	 * Stores a batch of events that is to be handled as soon as the plugin is activated. The first deferred batch
+	 * triggers the activation on a thread of the plugin's I/O executor, so the event dispatch thread isn't blocked.
+	 * @param vFileEvents   List of file events, provided by IntelliJ
+	 */
+	private void deferUntilActivated(List<? extends VFileEvent> vFileEvents) {
+		boolean activationRequested = !deferredEventBatches.isEmpty();
+		deferredEventBatches.add(new ArrayList<VFileEvent>(vFileEvents));
+		if (activationRequested) {
+			return;
+		}
+		PluginScheduler.getInstance().submit(PluginScheduler.Pool.IO, new Runnable() {
+			@Override
+			public void run() {
+				try {
+					plugin.ensureActivated();
+				}
+				finally {
+					ApplicationManager.getApplication().invokeLater(new Runnable() {
+						@Override
+						public void run() {
+							handleDeferredEventBatches();
+						}
+					});
+				}
+			}
+		});
+	}
+
+	/**
+	 * Handles the event batches that were received before the plugin was activated, in the order they were received.
+	 * If the plugin couldn't be activated (e.g. because it was disabled in the meantime), the batches are dropped.
+	 */
+	private void handleDeferredEventBatches() {
+		List<List<VFileEvent>> batches = new ArrayList<List<VFileEvent>>(deferredEventBatches);
+		deferredEventBatches.clear();
+		if (plugin.getProject() == null || !plugin.isActivated()) {
+			LOG.info("The plugin isn't activated, dropping " + batches.size() + " batches of file events");
+			return;
+		}
+		for (List<VFileEvent> batch : batches) {
+			try {
+				addDeletedFilesToModuleLookup(batch);
+				handleFileEvents(batch);
+			}
+			finally {
+				deletedFileModuleLookup.clear();
+			}
+		}
+	}
+
+	/**
+	 * Analyzes a batch of file events and passes the resulting VFS operations to a change handler
+	 * @param vFileEvents   List of file events
+	 */
+	private void handleFileEvents(List<? extends VFileEvent> vFileEvents) {
+		// each batch of events gets its own handler, so batches can't interfere with each other
+		changeHandler = new OpenCmsModuleFileChangeHandler(plugin);
+		for (VFileEvent event : vFileEvents) {
+			if (isRelevantEvent(event)) {
 				handleFileEvent(event);
 			}
+		}
 
-			if (changeHandler.hasAffectedFiles()) {
-				ApplicationManager.getApplication().invokeLater(changeHandler);
+		final OpenCmsModuleFileChangeHandler batchChangeHandler = changeHandler;
+		changeHandler = null;
+		if (!batchChangeHandler.hasAffectedFiles()) {
+			return;
+		}
+		final Set<String> vfsPathsToCheck = batchChangeHandler.getVfsPathsToCheck();
+		if (vfsPathsToCheck.isEmpty()) {
+			ApplicationManager.getApplication().invokeLater(batchChangeHandler);
+			return;
+		}
+		PluginScheduler.getInstance().submit(PluginScheduler.Pool.CMIS, new Runnable() {
+			@Override
+			public void run() {
+				batchChangeHandler.retainExistingVfsResources(getExistingVfsPaths(vfsPathsToCheck));
+				if (batchChangeHandler.hasAffectedFiles()) {
+					ApplicationManager.getApplication().invokeLater(batchChangeHandler);
+				}
 			}
+		});
+	}
 
+	/**
+	 * Checks which of the given resources exist in the VFS
+	 * @param vfsPaths the VFS paths to check
+	 * @return the VFS paths of the existing resources, an empty set if the VFS can't be accessed (the collected VFS
+	 *         operations are dropped then, but a module configuration refresh is still executed)
+	 */
+	private Set<String> getExistingVfsPaths(Set<String> vfsPaths) {
+		try {
+			return getVfsAdapter().getExistingPaths(vfsPaths);
 		}
 		catch (CmsConnectionException e) {
-			LOG.error("Error syncing file deletion/move/rename to OpenCms:\n" + e.getMessage(), e);
+			LOG.warn("Error syncing file deletion/move/rename to OpenCms:\n" + e.getMessage(), e);
 		}
-		finally {
-			deletedFileModuleLookup.clear();
+		catch (CmisPermissionDeniedException e) {
+			LOG.warn("Local files have been deleted, moved or renamed, but it can't be checked if the files exist in the VFS (permission denied).", e);
+		}
+		catch (CmisBaseException e) {
+			// e.g. a connection problem that wasn't detected yet, the existence of the files is unknown
+			LOG.warn("Local files have been deleted, moved or renamed, but it can't be checked if the files exist in the VFS.", e);
 		}
+		return Collections.emptySet();
 	}
 
 	/**
@@ -155,12 +282,46 @@ public class OpenCmsModuleFileChangeListener implements BulkFileListener {
 		return vfsAdapter;
 	}
 
+	/**
+	 * Fast pre-filter rejecting all events that can't affect OpenCms modules before any other work is done: only
+	 * deletes, moves and renames of files inside a module (the module is looked up in O(path depth) by its base
+	 * path) and changes to module configuration files are relevant. Mass events like VCS checkouts outside of OpenCms
+	 * modules are skipped at almost no cost.
+	 * @param event IntelliJ's file change event
+	 * @return <code>true</code> if the event has to be handled, <code>false</code> otherwise
+	 */
+	private boolean isRelevantEvent(VFileEvent event) {
+		VirtualFile ideaVFile = event.getFile();
+		if (ideaVFile == null) {
+			return false;
+		}
+		if (OpenCmsPlugin.OPENCMS_MODULE_CONFIG_FILE.equals(ideaVFile.getName())) {
+			return true;
+		}
+		if (event instanceof VFileDeleteEvent) {
+			return deletedFileModuleLookup.containsKey(ideaVFile);
+		}
+		if (event instanceof VFileMoveEvent) {
+			VFileMoveEvent moveEvent = (VFileMoveEvent)event;
+			return openCmsModules.getModuleForPath(moveEvent.getOldParent().getPath()) != null
+					|| openCmsModules.getModuleForPath(moveEvent.getNewParent().getPath()) != null;
+		}
+		if (event instanceof VFilePropertyChangeEvent) {
+			VFilePropertyChangeEvent propertyChangeEvent = (VFilePropertyChangeEvent)event;
+			if (!"name".equals(propertyChangeEvent.getPropertyName())) {
+				return false;
+			}
+			return OpenCmsPlugin.OPENCMS_MODULE_CONFIG_FILE.equals(propertyChangeEvent.getOldValue())
+					|| openCmsModules.getModuleForPath(ideaVFile.getPath()) != null;
+		}
+		return false;
+	}
+
 	/**
 	 * Internal handler for file delete, move and rename events
 	 * @param event IntelliJ's file change event
-	 * @throws CmsConnectionException if the connection to OpenCms fails
 	 */
-	private void handleFileEvent(VFileEvent event) throws CmsConnectionException {
+	private void handleFileEvent(VFileEvent event) {
 		// File is deleted
 		if (event instanceof VFileDeleteEvent) {
 			handleFileDeleteEvent(event);
@@ -187,39 +348,29 @@ public class OpenCmsModuleFileChangeListener implements BulkFileListener {
 
 	/**
 	 * Internal handler for file delete events, fills a list of files to be deleted that is handled later in
-	 * {@link OpenCmsModuleFileChangeHandler#handleChanges()}
+	 * {@link OpenCmsModuleFileChangeHandler#handleChanges()} (if the files exist in the VFS)
 	 * @param event IntelliJ's file change event
-	 * @throws CmsConnectionException if the connection to OpenCms fails
 	 */
-	void handleFileDeleteEvent(VFileEvent event) throws CmsConnectionException {
+	void handleFileDeleteEvent(VFileEvent event) {
 		VirtualFile ideaVFile = event.getFile();
 		if (ideaVFile != null) {
-			String moduleBasePath = PluginTools.getModuleContentRoot(deletedFileModuleLookup.get(ideaVFile));
-			OpenCmsModule ocmsModule = openCmsModules.getModuleForBasePath(moduleBasePath);
+			OpenCmsModule ocmsModule = deletedFileModuleLookup.get(ideaVFile);
 
 			// check if the file belongs to an OpenCms module
 			if (ocmsModule  != null && ocmsModule.isPathModuleResource(ideaVFile.getPath())) {
 				LOG.info("The following module resource was deleted: " + ideaVFile.getPath());
 				String vfsPath = ocmsModule.getVfsPathForRealPath(ideaVFile.getPath());
-				try {
-					if (getVfsAdapter().exists(vfsPath)) {
-						changeHandler.addFileToBeDeleted(ocmsModule, vfsPath, ideaVFile.isDirectory());
-					}
-				}
-				catch (CmisPermissionDeniedException e) {
-					throw new CmsConnectionException("A local file has been deleted, but it can't be checked if the file exists in the VFS (permission denied).\nPlease check manually: " + vfsPath);
-				}
+				changeHandler.addFileToBeDeleted(ocmsModule, vfsPath, ideaVFile.isDirectory());
 			}
 		}
 	}
 
 	/**
 	 * Internal handler for file move events fills a list of files to be moved that is handled later in
-	 * {@link OpenCmsModuleFileChangeHandler#handleChanges()}
+	 * {@link OpenCmsModuleFileChangeHandler#handleChanges()} (if the files exist in the VFS)
 	 * @param event IntelliJ's file change event
-	 * @throws CmsConnectionException if the connection to OpenCms fails
 	 */
-	void handleFileMoveEvent(VFileEvent event) throws CmsConnectionException {
+	void handleFileMoveEvent(VFileEvent event) {
 		VirtualFile ideaVFile = event.getFile();
 
 		if (ideaVFile != null) {
@@ -238,13 +389,10 @@ public class OpenCmsModuleFileChangeListener implements BulkFileListener {
 			if (oldOcmsModule != null && oldOcmsModule.isPathModuleResource(oldParentPath)
 					&& newOcmsModule != null && newOcmsModule.isPathModuleResource(newParent.getPath())) {
 				String oldParentVfsPath = oldOcmsModule.getVfsPathForRealPath(oldParentPath);
-				String oldVfsPath = oldParentVfsPath + "/" + ideaVFile.getName();
-				if (getVfsAdapter().exists(oldVfsPath)) {
-					String newParentVfsPath = newOcmsModule.getVfsPathForRealPath(newParentPath);
-					if (!oldParentVfsPath.equals(newParentVfsPath)) {
-						LOG.debug("A file was moved from " + oldParentVfsPath + " to " + newParentVfsPath);
-						changeHandler.addFileToBeMoved(oldOcmsModule, newOcmsModule, ideaVFile, ideaVFile.getName(), oldParentVfsPath, newParentVfsPath);
-					}
+				String newParentVfsPath = newOcmsModule.getVfsPathForRealPath(newParentPath);
+				if (!oldParentVfsPath.equals(newParentVfsPath)) {
+					LOG.debug("A file was moved from " + oldParentVfsPath + " to " + newParentVfsPath);
+					changeHandler.addFileToBeMoved(oldOcmsModule, newOcmsModule, ideaVFile, ideaVFile.getName(), oldParentVfsPath, newParentVfsPath);
 				}
 			}
 
@@ -255,21 +403,17 @@ public class OpenCmsModuleFileChangeListener implements BulkFileListener {
 				String oldVfsPath = oldParentVfsPath + "/" + ideaVFile.getName();
 
 				LOG.info("File was moved out of the module path, deleting " + oldVfsPath);
-
-				if (getVfsAdapter().exists(oldVfsPath)) {
-					changeHandler.addFileToBeDeleted(oldOcmsModule, oldVfsPath, ideaVFile.isDirectory());
-				}
+				changeHandler.addFileToBeDeleted(oldOcmsModule, oldVfsPath, ideaVFile.isDirectory());
 			}
 		}
 	}
 
 	/**
 	 * Internal handler for file rename events fills a list of files to be renamed that is handled later in
-	 * {@link OpenCmsModuleFileChangeHandler#handleChanges()}
+	 * {@link OpenCmsModuleFileChangeHandler#handleChanges()} (if the files exist in the VFS)
 	 * @param event IntelliJ's file change event
-	 * @throws CmsConnectionException if the connection to OpenCms fails
 	 */
-	void handleFileRenameEvent(VFileEvent event) throws CmsConnectionException {
+	void handleFileRenameEvent(VFileEvent event) {
 		VirtualFile ideaVFile = event.getFile();
 		if (ideaVFile != null) {
 			String renameFilePath = ideaVFile.getPath();
@@ -281,10 +425,10 @@ public class OpenCmsModuleFileChangeListener implements BulkFileListener {
 				String newVfsPath = ocmsModule.getVfsPathForRealPath(renameFilePath);
 				String oldVfsPath = newVfsPath.replaceFirst(newName, oldName);
 
-				if (!oldVfsPath.equals(newVfsPath) && ocmsModule.isPathModuleResource(ocmsModule.getLocalVfsRoot() + oldVfsPath) && getVfsAdapter().exists(oldVfsPath)) {
+				if (!oldVfsPath.equals(newVfsPath) && ocmsModule.isPathModuleResource(ocmsModule.getLocalVfsRoot() + oldVfsPath)) {
 					changeHandler.addFileToBeRenamed(ocmsModule, ideaVFile, oldVfsPath, newVfsPath, newName);
 				}
-				else if (oldName.equals(OpenCmsPlugin.OPENCMS_MODULE_CONFIG_FILE)) {
+				if (oldName.equals(OpenCmsPlugin.OPENCMS_MODULE_CONFIG_FILE)) {
 					changeHandler.setRefreshOpenCmsModuleConfiguration(true);
 				}
 			}
@@ -0,0 +1,243 @@
+/*
+ * This file is part of the OpenCms plugin for IntelliJ by mediaworx.
+ *
+ * For further information about the OpenCms plugin for IntelliJ, please
+ * see the project website at GitHub:
+ * https://github.com/mediaworx/opencms-intellijplugin
+ *
+ * Copyright (C) 2007-2016 mediaworx berlin AG (http://www.mediaworx.com)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+
+package com.mediaworx.intellij.opencmsplugin.opencms;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.mediaworx.intellij.opencmsplugin.tools.PluginScheduler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Watches single OpenCms configuration files for changes, using one NIO WatchService and one watcher thread shared by
+ * all open projects. Each watched directory is registered only once, no matter how many projects use the same webapp.
+ * Listeners are notified after the file hasn't been changed for {@link #DEBOUNCE_DELAY} milliseconds, so a file
+ * that is rewritten several times in a row causes only one notification (the notifications are coalesced by the
+ * {@link PluginScheduler} and executed by its I/O executor). The watcher thread is started with the first listener
+ * and stopped after the last listener was removed.
+ */
+class ConfigurationFileWatcher {
+
+	private static final Logger LOG = Logger.getInstance(ConfigurationFileWatcher.class);
+
+	/** time (in milliseconds) without further changes before listeners are notified */
+	private static final long DEBOUNCE_DELAY = 500;
+
+	private static ConfigurationFileWatcher instance;
+
+	private WatchService watchService;
+
+	/** watch keys of all watched directories */
+	private final Map<Path, WatchKey> watchKeys = new HashMap<Path, WatchKey>();
+
+	/** listeners of all watched files */
+	private final Map<Path, List<Runnable>> listenersByFile = new HashMap<Path, List<Runnable>>();
+
+	/**
+	 * @return the watcher shared by all projects
+	 */
+	static synchronized ConfigurationFileWatcher getInstance() {
+		if (instance == null) {
+			instance = new ConfigurationFileWatcher();
+		}
+		return instance;
+	}
+
+	/**
+	 * Adds a listener that is called (on a thread of the plugin's I/O executor) whenever the given file is created or
+	 * changed
+	 * @param file     the file to watch
+	 * @param listener the listener to be called
+	 */
+	synchronized void addListener(File file, Runnable listener) {
+		Path filePath = file.toPath().toAbsolutePath().normalize();
+		Path directory = filePath.getParent();
+		try {
+			start();
+			if (!watchKeys.containsKey(directory)) {
+				LOG.info("Watching " + directory + " for configuration changes");
+				watchKeys.put(directory, directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY));
+			}
+		}
+		catch (IOException e) {
+			LOG.warn("The OpenCms configuration folder " + directory + " can't be watched for changes", e);
+			stopIfUnused();
+			return;
+		}
+		List<Runnable> listeners = listenersByFile.get(filePath);
+		if (listeners == null) {
+			listeners = new ArrayList<Runnable>(1);
+			listenersByFile.put(filePath, listeners);
+		}
+		listeners.add(listener);
+	}
+
+	/**
+	 * Removes a listener, the file's directory isn't watched any more if there are no other listeners for files in
+	 * the directory
+	 * @param file     the watched file
+	 * @param listener the listener to be removed
+	 */
+	synchronized void removeListener(File file, Runnable listener) {
+		Path filePath = file.toPath().toAbsolutePath().normalize();
+		List<Runnable> listeners = listenersByFile.get(filePath);
+		if (listeners == null || !listeners.remove(listener)) {
+			return;
+		}
+		if (listeners.isEmpty()) {
+			listenersByFile.remove(filePath);
+			PluginScheduler.getInstance().cancelCoalesced(getNotificationKey(filePath));
+			Path directory = filePath.getParent();
+			if (!isDirectoryInUse(directory)) {
+				WatchKey watchKey = watchKeys.remove(directory);
+				if (watchKey != null) {
+					watchKey.cancel();
+				}
+			}
+		}
+		stopIfUnused();
+	}
+
+	private boolean isDirectoryInUse(Path directory) {
+		for (Path watchedFile : listenersByFile.keySet()) {
+			if (directory.equals(watchedFile.getParent())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void start() throws IOException {
+		if (watchService != null) {
+			return;
+		}
+		final WatchService service = FileSystems.getDefault().newWatchService();
+		watchService = service;
+		// the watcher thread blocks while waiting for changes, so it can't be run by one of the scheduler's executors
+		Thread watcherThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				watch(service);
+			}
+		}, "OpenCms configuration watcher");
+		watcherThread.setDaemon(true);
+		watcherThread.start();
+	}
+
+	private void stopIfUnused() {
+		if (!listenersByFile.isEmpty() || watchService == null) {
+			return;
+		}
+		LOG.info("Stopping the OpenCms configuration watcher");
+		try {
+			watchService.close();
+		}
+		catch (IOException e) {
+			LOG.info("There was an error closing the configuration watch service", e);
+		}
+		watchService = null;
+		watchKeys.clear();
+	}
+
+	/**
+	 * The watcher thread's loop, runs until the watch service is closed
+	 * @param service the watch service
+	 */
+	private void watch(WatchService service) {
+		while (true) {
+			WatchKey watchKey;
+			try {
+				watchKey = service.take();
+			}
+			catch (InterruptedException e) {
+				return;
+			}
+			catch (ClosedWatchServiceException e) {
+				return;
+			}
+			Path directory = (Path)watchKey.watchable();
+			for (WatchEvent<?> event : watchKey.pollEvents()) {
+				if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+					scheduleNotificationsForDirectory(directory);
+				}
+				else {
+					scheduleNotification(directory.resolve((Path)event.context()));
+				}
+			}
+			watchKey.reset();
+		}
+	}
+
+	private synchronized void scheduleNotificationsForDirectory(Path directory) {
+		for (Path watchedFile : new ArrayList<Path>(listenersByFile.keySet())) {
+			if (directory.equals(watchedFile.getParent())) {
+				scheduleNotification(watchedFile);
+			}
+		}
+	}
+
+	/**
+	 * Schedules the notification of the file's listeners, a notification that is already scheduled for the file is
+	 * replaced (so rapid rewrites result in only one notification)
+	 * @param filePath the changed file
+	 */
+	private synchronized void scheduleNotification(final Path filePath) {
+		if (!listenersByFile.containsKey(filePath) || watchService == null) {
+			return;
+		}
+		PluginScheduler.getInstance().scheduleCoalesced(PluginScheduler.Pool.IO, getNotificationKey(filePath), new Runnable() {
+			@Override
+			public void run() {
+				notifyListeners(filePath);
+			}
+		}, DEBOUNCE_DELAY);
+	}
+
+	private static String getNotificationKey(Path filePath) {
+		return "OpenCms configuration change " + filePath;
+	}
+
+	private void notifyListeners(Path filePath) {
+		List<Runnable> listeners;
+		synchronized (this) {
+			List<Runnable> fileListeners = listenersByFile.get(filePath);
+			if (fileListeners == null) {
+				return;
+			}
+			listeners = new ArrayList<Runnable>(fileListeners);
+		}
+		for (Runnable listener : listeners) {
+			try {
+				listener.run();
+			}
+			catch (RuntimeException e) {
+				LOG.warn("There was an Exception handling a change of " + filePath, e);
+			}
+		}
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * This file is part of the OpenCms plugin for IntelliJ by mediaworx.
+ *
+ * For further information about the OpenCms plugin for IntelliJ, please
+ * see the project website at GitHub:
+ * https://github.com/mediaworx/opencms-intellijplugin
+ *
+ * Copyright (C) 2007-2016 mediaworx berlin AG (http://www.mediaworx.com)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+
+package com.mediaworx.intellij.opencmsplugin.opencms;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable index of export points mapped by their VFS source paths. Finds the export point with the longest VFS
+ * source path containing a given VFS path with one hash lookup per path segment instead of checking every export
+ * point.
+ */
+public class ExportPointIndex {
+
+	private final Map<String, OpenCmsModuleExportPoint> exportPointsBySource;
+
+	/**
+	 * Builds the index for the given export points
+	 * @param exportPoints the export points, may be <code>null</code>
+	 */
+	ExportPointIndex(Collection<OpenCmsModuleExportPoint> exportPoints) {
+		exportPointsBySource = new HashMap<String, OpenCmsModuleExportPoint>();
+		if (exportPoints != null) {
+			for (OpenCmsModuleExportPoint exportPoint : exportPoints) {
+				// the first export point wins if several export points use the same source
+				if (!exportPointsBySource.containsKey(exportPoint.getVfsSource())) {
+					exportPointsBySource.put(exportPoint.getVfsSource(), exportPoint);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the export point with the longest VFS source path that is a prefix of the given VFS path
+	 * @param vfsPath the VFS path of a resource
+	 * @return the export point for the resource, <code>null</code> if the resource isn't contained in an export point
+	 */
+	public OpenCmsModuleExportPoint getExportPoint(String vfsPath) {
+		if (exportPointsBySource.isEmpty() || vfsPath == null) {
+			return null;
+		}
+		OpenCmsModuleExportPoint exportPoint = exportPointsBySource.get(vfsPath);
+		if (exportPoint != null) {
+			return exportPoint;
+		}
+		// check the parent paths from the longest to the shortest, with and without trailing slash
+		int slashPos = vfsPath.lastIndexOf('/', vfsPath.length() - 2);
+		while (slashPos > 0) {
+			exportPoint = exportPointsBySource.get(vfsPath.substring(0, slashPos + 1));
+			if (exportPoint == null) {
+				exportPoint = exportPointsBySource.get(vfsPath.substring(0, slashPos));
+			}
+			if (exportPoint != null) {
+				return exportPoint;
+			}
+			slashPos = vfsPath.lastIndexOf('/', slashPos - 1);
+		}
+		return exportPointsBySource.get("/");
+	}
+
+	/**
+	 * @return <code>true</code> if the index doesn't contain any export points, <code>false</code> otherwise
+	 */
+	public boolean isEmpty() {
+		return exportPointsBySource.isEmpty();
+	}
+}
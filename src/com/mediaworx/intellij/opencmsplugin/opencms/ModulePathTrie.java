@@ -0,0 +1,114 @@
+/*
+ * This file is part of the OpenCms plugin for IntelliJ by mediaworx.
+ *
+ * For further information about the OpenCms plugin for IntelliJ, please
+ * see the project website at GitHub:
+ * https://github.com/mediaworx/opencms-intellijplugin
+ *
+ * Copyright (C) 2007-2016 mediaworx berlin AG (http://www.mediaworx.com)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+
+package com.mediaworx.intellij.opencmsplugin.opencms;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable path segment trie mapping module base paths to OpenCms modules. Finds the module with the longest base
+ * path containing a given path in O(path depth), without any file system access. A new trie is built whenever modules
+ * are registered or unregistered.
+ */
+class ModulePathTrie {
+
+	/** trie without any modules */
+	static final ModulePathTrie EMPTY = new ModulePathTrie(new HashMap<String, OpenCmsModule>());
+
+	private final Node root;
+
+	/**
+	 * Builds a new trie for the given modules
+	 * @param modulesByBasePath the modules mapped by their base paths (unix style)
+	 */
+	ModulePathTrie(Map<String, OpenCmsModule> modulesByBasePath) {
+		root = new Node();
+		for (Map.Entry<String, OpenCmsModule> entry : modulesByBasePath.entrySet()) {
+			Node node = root;
+			String basePath = entry.getKey();
+			int segmentStart = 0;
+			while (segmentStart < basePath.length()) {
+				int segmentEnd = segmentEnd(basePath, segmentStart);
+				if (segmentEnd > segmentStart) {
+					node = node.getOrCreateChild(basePath.substring(segmentStart, segmentEnd));
+				}
+				segmentStart = segmentEnd + 1;
+			}
+			node.module = entry.getValue();
+		}
+	}
+
+	/**
+	 * Returns the module with the longest base path that is equal to or an ancestor of the given path
+	 * @param path any path (unix style)
+	 * @return the module containing the path, <code>null</code> if the path isn't contained in any module
+	 */
+	OpenCmsModule getModuleForPath(String path) {
+		Node node = root;
+		OpenCmsModule module = root.module;
+		int segmentStart = 0;
+		while (segmentStart < path.length()) {
+			int segmentEnd = segmentEnd(path, segmentStart);
+			if (segmentEnd > segmentStart) {
+				if (node.children == null) {
+					break;
+				}
+				node = node.children.get(path.substring(segmentStart, segmentEnd));
+				if (node == null) {
+					break;
+				}
+				if (node.module != null) {
+					module = node.module;
+				}
+			}
+			segmentStart = segmentEnd + 1;
+		}
+		return module;
+	}
+
+	private static int segmentEnd(String path, int segmentStart) {
+		int segmentEnd = path.indexOf('/', segmentStart);
+		return segmentEnd < 0 ? path.length() : segmentEnd;
+	}
+
+	private static class Node {
+
+		private Map<String, Node> children;
+		private OpenCmsModule module;
+
+		private Node getOrCreateChild(String segment) {
+			if (children == null) {
+				children = new HashMap<String, Node>();
+			}
+			Node child = children.get(segment);
+			if (child == null) {
+				child = new Node();
+				children.put(segment, child);
+			}
+			return child;
+		}
+	}
+}
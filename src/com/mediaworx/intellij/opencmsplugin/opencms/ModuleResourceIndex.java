@@ -0,0 +1,95 @@
+/*
+ * This file is part of the OpenCms plugin for IntelliJ by mediaworx.
+ *
+ * For further information about the OpenCms plugin for IntelliJ, please
+ * see the project website at GitHub:
+ * https://github.com/mediaworx/opencms-intellijplugin
+ *
+ * Copyright (C) 2007-2016 mediaworx berlin AG (http://www.mediaworx.com)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+
+package com.mediaworx.intellij.opencmsplugin.opencms;
+
+import com.mediaworx.intellij.opencmsplugin.tools.PluginTools;
+
+import java.util.*;
+
+/**
+ * Immutable index of a module's resource paths on the local file system, used to check if a local path is contained
+ * in one of the module resources without iterating all module resources. Lookups don't allocate any objects: the
+ * resource folders are kept in a sorted array without nested entries, so the only candidate containing a path is
+ * found by binary search.
+ */
+class ModuleResourceIndex {
+
+	/** local module resource paths without trailing slash, used to match the resource paths themselves */
+	private final Set<String> resourcePaths;
+
+	/** sorted local module resource paths with trailing slash, resources contained in other resources are omitted */
+	private final String[] resourceFolderPrefixes;
+
+	/**
+	 * Builds the index for the given module resources
+	 * @param localVfsRoot    absolute local path to the module's VFS folder
+	 * @param moduleResources the module resource paths (relative to the VFS root), may be <code>null</code>
+	 */
+	ModuleResourceIndex(String localVfsRoot, List<String> moduleResources) {
+		resourcePaths = new HashSet<String>();
+		List<String> prefixes = new ArrayList<String>();
+		if (moduleResources != null) {
+			for (String moduleResource : moduleResources) {
+				String resourcePath = PluginTools.ensureUnixPath(localVfsRoot + moduleResource);
+				while (resourcePath.endsWith("/")) {
+					resourcePath = resourcePath.substring(0, resourcePath.length() - 1);
+				}
+				resourcePaths.add(resourcePath);
+				prefixes.add(resourcePath + "/");
+			}
+		}
+		Collections.sort(prefixes);
+
+		// drop resources contained in other resources, all paths starting with a prefix directly follow the prefix
+		List<String> topLevelPrefixes = new ArrayList<String>(prefixes.size());
+		String lastPrefix = null;
+		for (String prefix : prefixes) {
+			if (lastPrefix == null || !prefix.startsWith(lastPrefix)) {
+				topLevelPrefixes.add(prefix);
+				lastPrefix = prefix;
+			}
+		}
+		resourceFolderPrefixes = topLevelPrefixes.toArray(new String[topLevelPrefixes.size()]);
+	}
+
+	/**
+	 * Checks if the given path is one of the module resource paths or is contained in one of them
+	 * @param path the absolute local path to check (unix style)
+	 * @return <code>true</code> if the path is a module resource, <code>false</code> otherwise
+	 */
+	boolean contains(String path) {
+		if (resourcePaths.contains(path)) {
+			return true;
+		}
+		int index = Arrays.binarySearch(resourceFolderPrefixes, path);
+		if (index >= 0) {
+			return true;
+		}
+		// the greatest prefix lower than the path is the only prefix that may contain the path
+		int candidate = -index - 2;
+		return candidate >= 0 && path.startsWith(resourceFolderPrefixes[candidate]);
+	}
+}
@@ -26,18 +26,18 @@ package com.mediaworx.intellij.opencmsplugin.opencms;
 
 import com.intellij.openapi.diagnostic.Logger;
 import com.mediaworx.intellij.opencmsplugin.configuration.OpenCmsPluginConfigurationData;
-import com.mediaworx.xmlutils.XmlHelper;
-import org.apache.commons.io.monitor.FileAlterationListener;
-import org.apache.commons.io.monitor.FileAlterationMonitor;
-import org.apache.commons.io.monitor.FileAlterationObserver;
-import org.w3c.dom.Document;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import org.apache.commons.lang3.StringUtils;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.File;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Parser for OpenCms XML configuration files, right now only handles the module configuration file
@@ -54,16 +54,20 @@ public class OpenCmsConfiguration {
 	public static final String CONFIGPATH = "/WEB-INF/config/";
 
 	private static final String MODULECONFIGFILE = "opencms-modules.xml";
-	private static final String EXPORTPOINT_XPATH = "/opencms/modules/module/name[normalize-space(text())=\"%s\"]/../exportpoints/exportpoint";
-	private static final String MODULE_RESOURCE_XPATH = "/opencms/modules/module/name[normalize-space(text())=\"%s\"]/../resources/resource";
+
+	/** element paths in the module configuration file */
+	private static final String MODULE_PATH = "/opencms/modules/module";
+	private static final String MODULE_NAME_PATH = MODULE_PATH + "/name";
+	private static final String EXPORTPOINT_PATH = MODULE_PATH + "/exportpoints/exportpoint";
+	private static final String MODULE_RESOURCE_PATH = MODULE_PATH + "/resources/resource";
 
 	private OpenCmsPluginConfigurationData config;
-	private XmlHelper xmlHelper;
 	private File moduleConfigurationFile;
-	private FileAlterationMonitor configurationChangeMonitor;
-	private List<ConfigurationChangeListener> configurationChageListeners = new ArrayList<ConfigurationChangeListener>();
+	private Runnable moduleConfigurationChangeHandler;
+	private List<ConfigurationChangeListener> configurationChageListeners = new CopyOnWriteArrayList<ConfigurationChangeListener>();
 
-	private Document parsedModuleConfigurationFile;
+	/** module resources and export points of all modules in the module configuration, mapped by module name */
+	private volatile Map<String, ModuleDefinition> moduleDefinitions;
 
 	/**
 	 * enumeration for configuration changes, containing only MODULECONFIGURATION right now, may be extended as needed
@@ -74,81 +78,207 @@ public class OpenCmsConfiguration {
 	}
 
 	/**
-	 * Creates a new OpenCmsConfiguration instance, prepares the XML helper for parsing configuration files, starts
-	 * a FileAlterationObserver used to handle changes to configuration files.
+	 * Creates a new OpenCmsConfiguration instance and parses the module configuration. Changes to the module
+	 * configuration are handled after calling {@link #startMonitoringConfigurationChanges()}.
 	 * @param config the project level plugin configuration data
 	 */
 	public OpenCmsConfiguration(OpenCmsPluginConfigurationData config) {
 		this.config = config;
 
-		File configurationFolder = new File(config.getWebappRoot() + CONFIGPATH);
 		this.moduleConfigurationFile = new File(config.getWebappRoot() + CONFIGPATH + MODULECONFIGFILE);
-
-		// Create an Observer for configuration changes
-		FileAlterationObserver configurationChangeObserver = new FileAlterationObserver(configurationFolder);
-		configurationChangeObserver.addListener(new ConfigurationAlterationListener());
-		configurationChangeMonitor = new FileAlterationMonitor(5000, configurationChangeObserver);
-
-		try {
-			xmlHelper = new XmlHelper();
-		}
-		catch (Exception e) {
-			LOG.warn("Exception during initialization of the module configuration: " + e);
-		}
+		moduleConfigurationChangeHandler = new Runnable() {
+			@Override
+			public void run() {
+				handleModuleConfigurationChange();
+			}
+		};
 
 		parseConfiguration();
 	}
 
 
-	/** Internal method used to parse the OpenCms configuration (right now only the module configuration is parsed) */
-	private void parseConfiguration() {
+	/**
+	 * Internal method used to parse the OpenCms configuration (right now only the module configuration is parsed)
+	 * @return <code>true</code> if the configuration was parsed successfully, <code>false</code> otherwise
+	 */
+	private boolean parseConfiguration() {
 		if (config.getWebappRoot() != null) {
 			try {
-				parsedModuleConfigurationFile = xmlHelper.parseFile(moduleConfigurationFile, null);
+				moduleDefinitions = parseModuleConfiguration(moduleConfigurationFile);
+				LOG.info("Parsed the module configuration, " + moduleDefinitions.size() + " modules found");
+				return true;
 			}
 			catch (Exception e) {
 				LOG.warn("Exception parsing the module configuration ", e);
 			}
 		}
+		return false;
 	}
 
 	/**
-	 * Starts the configuration change monitor that is used to observe configuration file changes and to notify
-	 * listeners after such changes occurred
-	 * @see #stopMonitoringConfigurationChanges()
+	 * Reads the module resources and export points of all modules from the module configuration file in one pass,
+	 * using a streaming parser
+	 * @param moduleConfigurationFile the module configuration file (<code>opencms-modules.xml</code>)
+	 * @return the module definitions mapped by module name
+	 * @throws IOException if the file can't be read
+	 * @throws XMLStreamException if the file can't be parsed
 	 */
-	public void startMonitoringConfigurationChanges() {
+	private static Map<String, ModuleDefinition> parseModuleConfiguration(File moduleConfigurationFile) throws IOException, XMLStreamException {
+		Map<String, ModuleDefinition> definitions = new HashMap<String, ModuleDefinition>();
+
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		// the DTD is neither needed nor loaded
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+		InputStream in = new FileInputStream(moduleConfigurationFile);
+		XMLStreamReader reader = null;
 		try {
-			LOG.info("Starting OpenCms configuration change monitor");
-			configurationChangeMonitor.start();
+			reader = factory.createXMLStreamReader(in);
+			StringBuilder path = new StringBuilder();
+			ModuleDefinition definition = null;
+			StringBuilder moduleName = null;
+
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					path.append('/').append(reader.getLocalName());
+					String currentPath = path.toString();
+					if (MODULE_PATH.equals(currentPath)) {
+						definition = new ModuleDefinition();
+						moduleName = new StringBuilder();
+					}
+					else if (definition != null && EXPORTPOINT_PATH.equals(currentPath)) {
+						String uri = reader.getAttributeValue(null, "uri");
+						String destination = reader.getAttributeValue(null, "destination");
+						if (uri != null && destination != null) {
+							definition.exportPoints.add(new OpenCmsModuleExportPoint(uri, destination));
+						}
+					}
+					else if (definition != null && MODULE_RESOURCE_PATH.equals(currentPath)) {
+						String uri = reader.getAttributeValue(null, "uri");
+						if (uri != null) {
+							definition.resources.add(uri);
+						}
+					}
+				}
+				else if (event == XMLStreamConstants.END_ELEMENT) {
+					if (definition != null && MODULE_PATH.contentEquals(path)) {
+						String name = StringUtils.normalizeSpace(moduleName.toString());
+						ModuleDefinition existingDefinition = definitions.get(name);
+						if (existingDefinition != null) {
+							existingDefinition.resources.addAll(definition.resources);
+							existingDefinition.exportPoints.addAll(definition.exportPoints);
+						}
+						else {
+							definitions.put(name, definition);
+						}
+						definition = null;
+					}
+					path.setLength(path.lastIndexOf("/"));
+				}
+				else if ((event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA)
+						&& moduleName != null && MODULE_NAME_PATH.contentEquals(path)) {
+					moduleName.append(reader.getText());
+				}
+			}
 		}
-		catch (Exception e) {
-			LOG.warn("There was an error starting the OpenCms configuration change monitor", e);
+		finally {
+			if (reader != null) {
+				reader.close();
+			}
+			in.close();
+		}
+		return definitions;
+	}
+
+	/**
+	 * Starts watching the module configuration file for changes, listeners are notified after such changes occurred.
+	 * The file is watched by the {@link ConfigurationFileWatcher} shared by all projects.
+	 * @see #stopMonitoringConfigurationChanges()
+	 */
+	public void startMonitoringConfigurationChanges() {
+		if (config.getWebappRoot() == null) {
+			return;
 		}
+		LOG.info("Starting OpenCms configuration change monitor");
+		ConfigurationFileWatcher.getInstance().addListener(moduleConfigurationFile, moduleConfigurationChangeHandler);
 	}
 
 	/**
-	 * Stops the configuration change monitor
+	 * Stops watching the module configuration file
 	 * @see #startMonitoringConfigurationChanges()
 	 */
 	public void stopMonitoringConfigurationChanges() {
-		try {
-			configurationChangeMonitor.stop();
+		ConfigurationFileWatcher.getInstance().removeListener(moduleConfigurationFile, moduleConfigurationChangeHandler);
+	}
+
+	/**
+	 * Parses the changed module configuration, compares it to the previous one and calls
+	 * <code>handleOpenCmsConfigurationChange</code> on all registered listeners whose module's resources or export
+	 * points were changed.
+	 */
+	private void handleModuleConfigurationChange() {
+		Map<String, ModuleDefinition> previousDefinitions = moduleDefinitions;
+		if (!parseConfiguration()) {
+			return;
+		}
+		Set<String> changedModuleNames = getChangedModuleNames(previousDefinitions, moduleDefinitions);
+		if (changedModuleNames.isEmpty()) {
+			LOG.info("The OpenCms module configuration has been changed, but no module resources or export points were changed");
+			return;
+		}
+		LOG.info("The OpenCms module configuration has been changed, refreshing modules " + changedModuleNames);
+
+		// notify the listeners whose module configuration was changed
+		for (ConfigurationChangeListener listener : configurationChageListeners) {
+			String moduleName = listener.getModuleName();
+			if (moduleName == null || changedModuleNames.contains(StringUtils.normalizeSpace(moduleName))) {
+				listener.handleOpenCmsConfigurationChange(ConfigurationChangeType.MODULECONFIGURATION);
+			}
+		}
+	}
+
+	/**
+	 * Internal method, compares two versions of the module configuration
+	 * @param previousDefinitions the previous module definitions, may be <code>null</code> if the configuration
+	 *                            wasn't parsed before
+	 * @param currentDefinitions  the current module definitions
+	 * @return the names of all modules that were added, removed or whose resources or export points were changed
+	 */
+	private static Set<String> getChangedModuleNames(Map<String, ModuleDefinition> previousDefinitions, Map<String, ModuleDefinition> currentDefinitions) {
+		if (previousDefinitions == null) {
+			return new HashSet<String>(currentDefinitions.keySet());
+		}
+		Set<String> changedModuleNames = new HashSet<String>();
+		for (Map.Entry<String, ModuleDefinition> entry : currentDefinitions.entrySet()) {
+			if (!entry.getValue().equals(previousDefinitions.get(entry.getKey()))) {
+				changedModuleNames.add(entry.getKey());
+			}
 		}
-		catch (Exception e) {
-			LOG.info("There was an error stopping the OpenCms configuration change monitor");
+		for (String moduleName : previousDefinitions.keySet()) {
+			if (!currentDefinitions.containsKey(moduleName)) {
+				changedModuleNames.add(moduleName);
+			}
 		}
+		return changedModuleNames;
 	}
 
 	/**
-	 * Internal method, parses the module configuration XML file and returns the resulting Document
-	 * @return the parsed module configuration XML file as a Document
+	 * Internal method, returns the module definition for the given module, parses the module configuration if it
+	 * wasn't parsed yet
+	 * @param moduleName the module's name
+	 * @return the module definition, <code>null</code> if the module isn't contained in the module configuration
 	 */
-	private Document getParsedModuleConfigurationFile() {
-		if (parsedModuleConfigurationFile == null) {
+	private ModuleDefinition getModuleDefinition(String moduleName) {
+		if (moduleDefinitions == null) {
 			parseConfiguration();
 		}
-		return parsedModuleConfigurationFile;
+		Map<String, ModuleDefinition> definitions = moduleDefinitions;
+		if (definitions == null || moduleName == null) {
+			return null;
+		}
+		return definitions.get(StringUtils.normalizeSpace(moduleName));
 	}
 
 	/**
@@ -157,28 +287,11 @@ public class OpenCmsConfiguration {
 	 * @return  A List of export points for the given module
 	 */
 	public List<OpenCmsModuleExportPoint> getExportPointsForModule(String moduleName) {
-		List<OpenCmsModuleExportPoint> exportPoints = new ArrayList<OpenCmsModuleExportPoint>();
-		Document configDocument = getParsedModuleConfigurationFile();
-		if (configDocument != null) {
-			try {
-				String exportPointXPath = String.format(EXPORTPOINT_XPATH, moduleName);
-				NodeList nl = xmlHelper.getNodeListForXPath(configDocument, exportPointXPath);
-				int numExportPoints = nl.getLength();
-
-				for (int i = 0; i < numExportPoints; i++) {
-					Node n = nl.item(i);
-					NamedNodeMap attr = n.getAttributes();
-					String uri = attr.getNamedItem("uri").getNodeValue();
-					String destination = attr.getNamedItem("destination").getNodeValue();
-					LOG.info("Exportpoint " + (i + 1) + ": uri=" + uri + " - destination=" + destination);
-					exportPoints.add(new OpenCmsModuleExportPoint(uri, destination));
-				}
-			}
-			catch (Exception e) {
-				LOG.warn("There was an Exception initializing export points for module " + moduleName, e);
-			}
+		ModuleDefinition definition = getModuleDefinition(moduleName);
+		if (definition == null) {
+			return new ArrayList<OpenCmsModuleExportPoint>();
 		}
-		return exportPoints;
+		return new ArrayList<OpenCmsModuleExportPoint>(definition.exportPoints);
 	}
 
 	/**
@@ -187,27 +300,11 @@ public class OpenCmsConfiguration {
 	 * @return A List of module resources for the given module
 	 */
 	public List<String> getModuleResourcesForModule(String moduleName) {
-		List<String> moduleResources = new ArrayList<String>();
-		Document configDocument = getParsedModuleConfigurationFile();
-
-		if (configDocument != null) {
-			try {
-				NodeList nl = xmlHelper.getNodeListForXPath(configDocument, String.format(MODULE_RESOURCE_XPATH, moduleName));
-				int numResources = nl.getLength();
-
-				for (int i = 0; i < numResources; i++) {
-					Node n = nl.item(i);
-					NamedNodeMap attr = n.getAttributes();
-					String uri = attr.getNamedItem("uri").getNodeValue();
-					LOG.info("Module Resource " + (i + 1) + ": uri=" + uri);
-					moduleResources.add(uri);
-				}
-			}
-			catch (Exception e) {
-				LOG.warn("There was an Exception initializing export points for module " + moduleName, e);
-			}
+		ModuleDefinition definition = getModuleDefinition(moduleName);
+		if (definition == null) {
+			return new ArrayList<String>();
 		}
-		return moduleResources;
+		return new ArrayList<String>(definition.resources);
 	}
 
 
@@ -221,75 +318,27 @@ public class OpenCmsConfiguration {
 	}
 
 	/**
-	 * The internal FileAlterationListener handling file changes of OpenCms configuration files
+	 * Module resources and export points of one module, as read from the module configuration
 	 */
-	private class ConfigurationAlterationListener implements FileAlterationListener {
-
-		/** does nothing */
-		@Override
-		public void onStart(FileAlterationObserver fileAlterationObserver) {
-			// LOG.debug("Checking for OpenCms configuration changes");
-		}
-
-		/** does nothing */
-		@Override
-		public void onDirectoryCreate(File file) {
-			// Do nothing
-		}
+	private static class ModuleDefinition {
+		private List<String> resources = new ArrayList<String>();
+		private List<OpenCmsModuleExportPoint> exportPoints = new ArrayList<OpenCmsModuleExportPoint>();
 
-		/** does nothing */
 		@Override
-		public void onDirectoryChange(File file) {
-			// Do nothing
-		}
-
-		/** does nothing */
-		@Override
-		public void onDirectoryDelete(File file) {
-			// Do nothing
-		}
-
-		/** does nothing */
-		@Override
-		public void onFileCreate(File file) {
-			// Do nothing
-		}
-
-		/**
-		 * Handles changes to OpenCms configuration files (right now only changes to the module configuration are
-		 * handled). Parses the changed configuration file and calls <code>handleOpenCmsConfigurationChange</code> on
-		 * all registered listeners.
-		 * @param file  the changed file
-		 */
-		@Override
-		public void onFileChange(File file) {
-			// ignore changes in the configuration backup directory
-			if (file.getPath().contains(File.pathSeparator + "backup")) {
-				return;
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
 			}
-
-			// if the module configuration was changed ...
-			if (file.getName().equals(MODULECONFIGFILE)) {
-				LOG.info("The OpenCms module configuration has been changed, refreshing modules");
-				parseConfiguration();
-
-				// notify the listeners that the module configuration was changed
-				for (ConfigurationChangeListener listener : configurationChageListeners) {
-					listener.handleOpenCmsConfigurationChange(ConfigurationChangeType.MODULECONFIGURATION);
-				}
+			if (!(o instanceof ModuleDefinition)) {
+				return false;
 			}
+			ModuleDefinition other = (ModuleDefinition)o;
+			return resources.equals(other.resources) && exportPoints.equals(other.exportPoints);
 		}
 
-		/** does nothing */
-		@Override
-		public void onFileDelete(File file) {
-			// Do nothing
-		}
-
-		/** does nothing */
 		@Override
-		public void onStop(FileAlterationObserver fileAlterationObserver) {
-			// LOG.debug("Checking for OpenCms configuration changes finished");
+		public int hashCode() {
+			return 31 * resources.hashCode() + exportPoints.hashCode();
 		}
 	}
 
@@ -304,5 +353,12 @@ public class OpenCmsConfiguration {
 		 * @param changeType    the type of the changed OpenCms configuration (right now only MODULECONFIGURATION)
 		 */
 		public void handleOpenCmsConfigurationChange(ConfigurationChangeType changeType);
+
+		/**
+		 * Returns the name of the module the listener is interested in. Module configuration changes are only
+		 * passed on to the listener if the resources or export points of that module were changed.
+		 * @return the module name, <code>null</code> if the listener should be notified about every change
+		 */
+		public String getModuleName();
 	}
 }
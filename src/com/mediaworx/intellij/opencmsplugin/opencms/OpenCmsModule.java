@@ -27,6 +27,7 @@ package com.mediaworx.intellij.opencmsplugin.opencms;
 import com.mediaworx.intellij.opencmsplugin.OpenCmsPlugin;
 import com.mediaworx.intellij.opencmsplugin.configuration.OpenCmsModuleConfigurationData;
 import com.mediaworx.intellij.opencmsplugin.configuration.OpenCmsPluginConfigurationData;
+import com.mediaworx.intellij.opencmsplugin.sync.SyncBaseline;
 import com.mediaworx.intellij.opencmsplugin.sync.SyncMode;
 import com.mediaworx.intellij.opencmsplugin.tools.PluginTools;
 import com.mediaworx.intellij.opencmsplugin.tools.VfsFileAnalyzer;
@@ -56,7 +57,9 @@ public class OpenCmsModule implements OpenCmsConfiguration.ConfigurationChangeLi
 
 	private List<OpenCmsModuleExportPoint> exportPoints;
 	private List<String> moduleResources;
+	private volatile ModuleResourceIndex moduleResourceIndex;
 	private String localVfsRoot;
+	private SyncBaseline syncBaseline;
 
 	/**
 	 * Creates a new OpenCms module
@@ -105,6 +108,19 @@ public class OpenCmsModule implements OpenCmsConfiguration.ConfigurationChangeLi
 			relativeVfsRoot = moduleConfig.getLocalVfsRoot();
 		}
 		localVfsRoot = this.moduleBasePath + "/" + relativeVfsRoot;
+		moduleResourceIndex = new ModuleResourceIndex(localVfsRoot, moduleResources);
+		discardSyncBaseline();
+	}
+
+	/**
+	 * Saves and discards the sync baseline, it is loaded again (possibly from another location) on the next access.
+	 * Synchronized like {@link #getSyncBaseline()}, so a sync running in parallel doesn't lose baseline entries.
+	 */
+	private synchronized void discardSyncBaseline() {
+		if (syncBaseline != null) {
+			syncBaseline.save();
+			syncBaseline = null;
+		}
 	}
 
 	/**
@@ -153,6 +169,17 @@ public class OpenCmsModule implements OpenCmsConfiguration.ConfigurationChangeLi
 		return exportImportSiteRoot;
 	}
 
+	/**
+	 * @return the index of the module's resource states after the last sync, stored next to the manifest root
+	 */
+	public synchronized SyncBaseline getSyncBaseline() {
+		if (syncBaseline == null) {
+			File baselineFolder = new File(getManifestRoot()).getParentFile();
+			syncBaseline = new SyncBaseline(new File(baselineFolder, SyncBaseline.BASELINE_FILENAME));
+		}
+		return syncBaseline;
+	}
+
 	/**
 	 * @return absolute local path to the folder containing the module's meta data
 	 */
@@ -213,26 +240,14 @@ public class OpenCmsModule implements OpenCmsConfiguration.ConfigurationChangeLi
 	}
 
 	/**
-	 * Checks if the given path is inside a module resource path
+	 * Checks if the given path is inside a module resource path (or is a module resource path itself)
 	 *
 	 * @param resourcePath the path to check
 	 * @return <code>true</code> if the path is contained in one of the module's resource paths,
 	 * <code>false</code> otherwise
 	 */
 	public boolean isPathModuleResource(String resourcePath) {
-		resourcePath = PluginTools.ensureUnixPath(resourcePath);
-		for (String moduleResourcePath : getModuleResources()) {
-			String localModuleResourcePath = getLocalVfsRoot() + moduleResourcePath;
-			if ((resourcePath + "/").endsWith(localModuleResourcePath)) {
-				resourcePath = resourcePath + "/";
-			}
-			LOG.info("localModuleResourcePath: " + localModuleResourcePath);
-			LOG.info("resourcePath:     " + resourcePath);
-			if (resourcePath.startsWith(localModuleResourcePath)) {
-				return true;
-			}
-		}
-		return false;
+		return moduleResourceIndex.contains(PluginTools.ensureUnixPath(resourcePath));
 	}
 
 	/**
@@ -340,14 +355,26 @@ public class OpenCmsModule implements OpenCmsConfiguration.ConfigurationChangeLi
 
 
 	/**
-	 * handles changes to the module configuration, refreshes export points and module resources
+	 * handles changes to the module configuration, refreshes export points and module resources. The module resource
+	 * index and the global export point index are only rebuilt if the module's resources or export points changed.
 	 * @param changeType    the type of the changed OpenCms configuration (right now only MODULECONFIGURATION)
 	 */
 	@Override
 	public void handleOpenCmsConfigurationChange(OpenCmsConfiguration.ConfigurationChangeType changeType) {
 		if (changeType == OpenCmsConfiguration.ConfigurationChangeType.MODULECONFIGURATION) {
-			exportPoints = openCmsConfig.getExportPointsForModule(moduleName);
-			moduleResources = openCmsConfig.getModuleResourcesForModule(moduleName);
+			List<String> changedModuleResources = openCmsConfig.getModuleResourcesForModule(moduleName);
+			if (!changedModuleResources.equals(moduleResources)) {
+				moduleResources = changedModuleResources;
+				moduleResourceIndex = new ModuleResourceIndex(localVfsRoot, moduleResources);
+			}
+			List<OpenCmsModuleExportPoint> changedExportPoints = openCmsConfig.getExportPointsForModule(moduleName);
+			if (!changedExportPoints.equals(exportPoints)) {
+				exportPoints = changedExportPoints;
+				OpenCmsModules openCmsModules = plugin.getOpenCmsModules();
+				if (openCmsModules != null) {
+					openCmsModules.invalidateExportPoints();
+				}
+			}
 		}
 	}
 
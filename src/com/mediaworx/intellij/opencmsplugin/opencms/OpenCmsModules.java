@@ -43,8 +43,21 @@ public class OpenCmsModules {
 	OpenCmsPlugin plugin;
 	List<OpenCmsModuleExportPoint> allExportPoints;
 
+	/** index of all export points, built lazily and discarded whenever export points change */
+	private volatile ExportPointIndex exportPointIndex;
+
+	/** the registered modules mapped by their base path, only modified while holding the repository's lock */
 	private Map<String, OpenCmsModule> openCmsModuleMap = new LinkedHashMap<String, OpenCmsModule>();
 
+	/**
+	 * unmodifiable copy of the module map used by readers, replaced whenever modules are registered or unregistered,
+	 * so readers on other threads (e.g. the EDT) can iterate the modules while modules are registered in the background
+	 */
+	private volatile Map<String, OpenCmsModule> openCmsModuleSnapshot = Collections.emptyMap();
+
+	/** trie used to find the module for a path, rebuilt whenever modules are registered or unregistered */
+	private volatile ModulePathTrie modulePathTrie = ModulePathTrie.EMPTY;
+
 	/**
 	 * Creates a new OpenCmsModules repository
 	 * @param plugin  the current plugin instance
@@ -58,10 +71,10 @@ public class OpenCmsModules {
 	 * @param moduleBasePath the module's base path
 	 * @param moduleConfig   the configuration data from the module's configuration dialog
 	 */
-	public void registerModule(String moduleBasePath, OpenCmsModuleConfigurationData moduleConfig) {
+	public synchronized void registerModule(String moduleBasePath, OpenCmsModuleConfigurationData moduleConfig) {
 		LOG.info("registering module: " + moduleBasePath);
 		moduleBasePath = PluginTools.ensureUnixPath(moduleBasePath);
-		allExportPoints = null;
+		invalidateExportPoints();
 		if (!moduleConfig.isOpenCmsModuleEnabled()) {
 			return;
 		}
@@ -74,6 +87,7 @@ public class OpenCmsModules {
 			ocmsModule = new OpenCmsModule(plugin, moduleBasePath);
 			ocmsModule.init(moduleConfig);
 			openCmsModuleMap.put(moduleBasePath, ocmsModule);
+			publishModules();
 		}
 	}
 
@@ -81,90 +95,61 @@ public class OpenCmsModules {
 	 * removes the OpenCms module linked to the IntelliJ module with the given base path from the repository
 	 * @param moduleBasePath the IntelliJ module's basePath
 	 */
-	public void unregisterModule(String moduleBasePath) {
+	public synchronized void unregisterModule(String moduleBasePath) {
 		LOG.info("unregistering module: " + moduleBasePath);
-		allExportPoints = null;
+		invalidateExportPoints();
 		openCmsModuleMap.remove(moduleBasePath);
+		publishModules();
 	}
 
 	/**
-	 * @return a Collection of all modules in the repository
+	 * replaces the module snapshot and the module path trie with new ones containing all registered modules
 	 */
-	public Collection<OpenCmsModule> getAllModules() {
-		return openCmsModuleMap.values();
+	private void publishModules() {
+		openCmsModuleSnapshot = Collections.unmodifiableMap(new LinkedHashMap<String, OpenCmsModule>(openCmsModuleMap));
+		modulePathTrie = new ModulePathTrie(openCmsModuleMap);
 	}
 
-	/*
-		Compare paths ending with a / to avoid matching on another
-		module that begins with the same prefix.
-		For example, consider this ModuleMap:
-		- a.b.c.a
-		- a.b.c
-		- a.b.c.d
-		Without the / appending, a request for a.b.c.d/src/main/vfs/example.txt
-		would yield the module a.b.c responsible.
-		 */
+	/**
+	 * @return an unmodifiable Collection of all modules in the repository, the collection isn't affected by modules
+	 *         being registered or unregistered later on
+	 */
+	public Collection<OpenCmsModule> getAllModules() {
+		return openCmsModuleSnapshot.values();
+	}
 
 	/**
-	 * get the module owning a specific File
-	 * @param file
-	 * @return
+	 * get the module owning a specific File. Paths are compared segment by segment, so a module whose base path is a
+	 * String prefix of another module's base path (e.g. <code>a.b.c</code> and <code>a.b.c.d</code>) is never
+	 * considered responsible for the other module's files. If modules are nested, the innermost module is returned.
+	 * @param file the file
+	 * @return the module containing the file, <code>null</code> if the file isn't contained in any module
 	 */
 	public OpenCmsModule getModuleForFile(File file) {
 		if (file == null) {
 			return null;
 		}
-		String filePath = PluginTools.ensureUnixPath(file.getPath());
-		if(file.isDirectory() && filePath.substring(filePath.length() - 1) != "/") {
-			filePath = filePath + "/";
-		}
-		LOG.info("getModuleForFile(file="+filePath+")");
-		for (String basePath : openCmsModuleMap.keySet()) {
-			String compareBasePath = basePath;
-			if(compareBasePath.substring(compareBasePath.length() - 1) != "/") {
-				compareBasePath = compareBasePath + "/";
-			}
-			LOG.info("Comparing " + filePath + " against "+compareBasePath);
-			if (filePath.startsWith(compareBasePath)) {
-				LOG.info("Match");
-				return openCmsModuleMap.get(basePath); //use basePath here as the module registration may or may not have been with a trailing /
-			}
-		}
-		LOG.warn("No matching module could be found for " + filePath);
-		return null;
+		return getModuleForUnixPath(PluginTools.ensureUnixPath(file.getPath()));
 	}
 
 	/**
 	 * @param path any path inside the module (local root path)
-	 * @return the module containing the path
+	 * @return the module containing the path, <code>null</code> if the path isn't contained in any module
 	 */
 	public OpenCmsModule getModuleForPath(String path) {
 		if (path == null) {
 			LOG.error("getModuleForPath called with path = null");
 			return null;
 		}
-		File fsFile = new File(path);
-		if(!fsFile.exists()) {
-			LOG.error("getModuleForPath(" + path + ") called on a non-existent file");
-			return null;
-		}
-		if(fsFile.isDirectory() && path.substring(path.length() - 1) != "/") {
-			path = path + "/";
-		}
-		LOG.info("getModuleForPath(path=" + path + ")");
-		for (String basePath : openCmsModuleMap.keySet()) {
-			String compareBasePath = basePath;
-			if(compareBasePath.substring(compareBasePath.length() - 1) != "/") {
-				compareBasePath = compareBasePath + "/";
-			}
-			LOG.info("Comparing " + path + " against "+compareBasePath);
-			if (path.startsWith(compareBasePath)) {
-				LOG.info("Match");
-				return openCmsModuleMap.get(basePath); //use basePath here as the module registration may or may not have been with a trailing /
-			}
+		return getModuleForUnixPath(PluginTools.ensureUnixPath(path));
+	}
+
+	private OpenCmsModule getModuleForUnixPath(String path) {
+		OpenCmsModule ocmsModule = modulePathTrie.getModuleForPath(path);
+		if (ocmsModule == null && LOG.isDebugEnabled()) {
+			LOG.debug("No matching module could be found for " + path);
 		}
-		LOG.warn("No matching module could be found for " + path);
-		return null;
+		return ocmsModule;
 	}
 
 	/**
@@ -175,7 +160,7 @@ public class OpenCmsModules {
 		if (moduleBasePath == null) {
 			return null;
 		}
-		return openCmsModuleMap.get(moduleBasePath);
+		return openCmsModuleSnapshot.get(moduleBasePath);
 	}
 
 	/**
@@ -197,30 +182,40 @@ public class OpenCmsModules {
 	 *         the resource
 	 */
 	public OpenCmsModuleExportPoint getExportPointForVfsResource(String resourcePath) {
-		for (OpenCmsModuleExportPoint exportPoint : getAllExportPoints()) {
-			if (resourcePath.startsWith(exportPoint.getVfsSource())) {
-				return exportPoint;
-			}
+		return getExportPointIndex().getExportPoint(resourcePath);
+	}
+
+	/**
+	 * @return index of all export points defined by all the modules in the repository, mapping VFS paths to the
+	 *         export point with the longest matching VFS source
+	 */
+	public ExportPointIndex getExportPointIndex() {
+		ExportPointIndex index = exportPointIndex;
+		if (index == null) {
+			index = new ExportPointIndex(getAllExportPoints());
+			exportPointIndex = index;
 		}
-		return null;
+		return index;
 	}
 
 	/**
 	 * @return List of all export points defined by all the modules in the repository
 	 */
 	public List<OpenCmsModuleExportPoint> getAllExportPoints() {
-		if (allExportPoints == null) {
-			allExportPoints = new ArrayList<OpenCmsModuleExportPoint>();
+		List<OpenCmsModuleExportPoint> exportPointList = allExportPoints;
+		if (exportPointList == null) {
+			exportPointList = new ArrayList<OpenCmsModuleExportPoint>();
 			for (OpenCmsModule ocmsModule : getAllModules()) {
 				List<OpenCmsModuleExportPoint> exportPoints = ocmsModule.getExportPoints();
 				if (exportPoints != null) {
 					for (OpenCmsModuleExportPoint exportPoint : exportPoints) {
-						allExportPoints.add(exportPoint);
+						exportPointList.add(exportPoint);
 					}
 				}
 			}
+			allExportPoints = exportPointList;
 		}
-		return allExportPoints;
+		return exportPointList;
 	}
 
 	/**
@@ -230,6 +225,14 @@ public class OpenCmsModules {
 		for (OpenCmsModule ocmsModule : getAllModules()) {
 			ocmsModule.refresh();
 		}
+		invalidateExportPoints();
+	}
+
+	/**
+	 * discards the cached export point list and index, called whenever modules or their export points change
+	 */
+	void invalidateExportPoints() {
 		allExportPoints = null;
+		exportPointIndex = null;
 	}
 }
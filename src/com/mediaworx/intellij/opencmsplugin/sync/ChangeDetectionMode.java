@@ -0,0 +1,52 @@
+/*
+ * This file is part of the OpenCms plugin for IntelliJ by mediaworx.
+ *
+ * For further information about the OpenCms plugin for IntelliJ, please
+ * see the project website at GitHub:
+ * https://github.com/mediaworx/opencms-intellijplugin
+ *
+ * Copyright (C) 2007-2016 mediaworx berlin AG (http://www.mediaworx.com)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.mediaworx.intellij.opencmsplugin.sync;
+
+/**
+ * represents the strategy used to detect if a file existing in the RFS and the VFS has changed
+ * <ul>
+ *     <li>
+ *         TIMESTAMP: A file has changed if the local modification date differs from the VFS modification date (that's
+ *         the classic behaviour).
+ *     </li>
+ *     <li>
+ *         SIZE_AND_TIMESTAMP: A file has changed if the modification dates differ or if the local file size differs
+ *         from the size recorded in the sync baseline at the last transfer (while the VFS file didn't change). Detects
+ *         local changes that didn't touch the modification date. The VFS content length isn't compared, because
+ *         OpenCms rewrites XML contents when they are written.
+ *     </li>
+ *     <li>
+ *         CONTENT_DIGEST: Like SIZE_AND_TIMESTAMP, but if only the modification dates differ and the VFS file didn't
+ *         change since the last sync, the local file's content digest is compared to the digest recorded in the sync
+ *         baseline. If the content is identical (e.g. after a Git checkout that only touched the file), only the local
+ *         modification date is reset to the VFS date and nothing is transferred.
+ *     </li>
+ * </ul>
+ */
+public enum ChangeDetectionMode {
+	TIMESTAMP,
+	SIZE_AND_TIMESTAMP,
+	CONTENT_DIGEST
+}
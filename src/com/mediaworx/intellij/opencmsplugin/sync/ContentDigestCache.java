@@ -0,0 +1,134 @@
+/*
+ * This file is part of the OpenCms plugin for IntelliJ by mediaworx.
+ *
+ * For further information about the OpenCms plugin for IntelliJ, please
+ * see the project website at GitHub:
+ * https://github.com/mediaworx/opencms-intellijplugin
+ *
+ * Copyright (C) 2007-2016 mediaworx berlin AG (http://www.mediaworx.com)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.mediaworx.intellij.opencmsplugin.sync;
+
+import com.intellij.openapi.diagnostic.Logger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache for content digests of local files. Digests are computed by streaming the file content through the digest,
+ * so even large binary files are never loaded into memory completely. A cached digest is reused as long as the file's
+ * size and modification date are unchanged. The cache is shared by all projects and limited to
+ * {@link #MAX_ENTRIES} entries (least recently used entries are evicted first).
+ */
+public class ContentDigestCache {
+
+	private static final Logger LOG = Logger.getInstance(ContentDigestCache.class);
+
+	private static final int MAX_ENTRIES = 50000;
+	private static final String DIGEST_ALGORITHM = "SHA-1";
+	private static final ContentDigestCache INSTANCE = new ContentDigestCache();
+
+	private final Map<String, CachedDigest> digests;
+
+	private ContentDigestCache() {
+		digests = new LinkedHashMap<String, CachedDigest>(1024, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedDigest> eldest) {
+				return size() > MAX_ENTRIES;
+			}
+		};
+	}
+
+	/**
+	 * @return the shared digest cache
+	 */
+	public static ContentDigestCache getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns the content digest of the given file, from the cache if the file didn't change since the digest was
+	 * computed.
+	 * @param file the local file
+	 * @return the hex encoded content digest, <code>null</code> if the file could not be read
+	 */
+	public String getDigest(File file) {
+		String path = file.getPath();
+		long size = file.length();
+		long lastModified = file.lastModified();
+		synchronized (digests) {
+			CachedDigest cached = digests.get(path);
+			if (cached != null && cached.size == size && cached.lastModified == lastModified) {
+				return cached.digest;
+			}
+		}
+		// computed outside of the lock, so parallel sync workers don't block each other
+		String digest = computeDigest(file);
+		if (digest != null) {
+			synchronized (digests) {
+				digests.put(path, new CachedDigest(size, lastModified, digest));
+			}
+		}
+		return digest;
+	}
+
+	private static String computeDigest(File file) {
+		MessageDigest messageDigest;
+		try {
+			messageDigest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+		}
+		catch (NoSuchAlgorithmException e) {
+			LOG.warn(DIGEST_ALGORITHM + " not available", e);
+			return null;
+		}
+		try (InputStream in = new FileInputStream(file)) {
+			byte[] buffer = new byte[65536];
+			for (int n; (n = in.read(buffer)) != -1; ) {
+				messageDigest.update(buffer, 0, n);
+			}
+		}
+		catch (IOException e) {
+			LOG.info("The content digest for " + file.getPath() + " could not be computed", e);
+			return null;
+		}
+		StringBuilder digest = new StringBuilder(40);
+		for (byte b : messageDigest.digest()) {
+			digest.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return digest.toString();
+	}
+
+	private static class CachedDigest {
+
+		private final long size;
+		private final long lastModified;
+		private final String digest;
+
+		CachedDigest(long size, long lastModified, String digest) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.digest = digest;
+		}
+	}
+}
@@ -25,24 +25,34 @@
 package com.mediaworx.intellij.opencmsplugin.sync;
 
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.mediaworx.intellij.opencmsplugin.OpenCmsPlugin;
 import com.mediaworx.intellij.opencmsplugin.configuration.OpenCmsPluginConfigurationData;
 import com.mediaworx.intellij.opencmsplugin.entities.SyncEntity;
 import com.mediaworx.intellij.opencmsplugin.exceptions.CmsConnectionException;
+import com.mediaworx.intellij.opencmsplugin.tools.PluginScheduler;
+import com.mediaworx.intellij.opencmsplugin.toolwindow.OpenCmsToolWindowConsole;
 
 import java.io.File;
 import java.util.List;
 
 /**
- * Syncs a list of SyncFiles with OpenCms, uses the {@link SyncFileAnalyzer} to analyze which files to sync
+ * Syncs a list of SyncFiles with OpenCms, uses the {@link SyncFileAnalyzer} to analyze which files to sync.
+ * Small selections of plain files (e.g. the file in the editor) are synced using a fast path without modal progress
+ * dialog, without saving unrelated documents and without clearing the CMIS session cache.
  */
 public class OpenCmsSyncer {
 
 	private static final Logger LOG = Logger.getInstance(OpenCmsSyncer.class);
 
+	/** maximum number of files that are synced using the fast path */
+	private static final int FAST_PATH_MAX_FILES = 10;
+
 	OpenCmsPlugin plugin;
 	OpenCmsPluginConfigurationData config;
 
@@ -52,9 +62,6 @@ public class OpenCmsSyncer {
 	public OpenCmsSyncer(OpenCmsPlugin plugin) {
 		this.plugin = plugin;
 		config = plugin.getPluginConfiguration();
-
-		FileDocumentManager.getInstance().saveAllDocuments();
-		FileDocumentManager.getInstance().reloadFiles();
 	}
 
 
@@ -65,6 +72,14 @@ public class OpenCmsSyncer {
 	 */
 	public void syncFiles(List<File> syncFiles) {
 
+		if (isFastPathApplicable(syncFiles)) {
+			syncFilesFast(syncFiles);
+			return;
+		}
+
+		FileDocumentManager.getInstance().saveAllDocuments();
+		FileDocumentManager.getInstance().reloadFiles();
+
 		SyncFileAnalyzer analyzer;
 
 		try {
@@ -75,6 +90,11 @@ public class OpenCmsSyncer {
 			return;
 		}
 
+		if (config.isPipelinedSyncEnabled() && !pullMetaDataOnly) {
+			syncFilesPipelined(analyzer);
+			return;
+		}
+
 		ProgressManager.getInstance().runProcessWithProgressSynchronously(analyzer, "Analyzing local and VFS syncFiles and folders ...", true, plugin.getProject());
 
 		if (!analyzer.isExecuteSync()) {
@@ -99,7 +119,7 @@ public class OpenCmsSyncer {
 			}
 			if (proceed) {
 				plugin.showConsole();
-				new Thread(syncJob).start();
+				PluginScheduler.getInstance().submit(PluginScheduler.Pool.JOBS, syncJob);
 			}
 		}
 		else {
@@ -108,6 +128,106 @@ public class OpenCmsSyncer {
 		}
 	}
 
+	/**
+	 * Starts the {@link SyncJob} before the analysis, so resources are synced as soon as the analyzer discovers them.
+	 * No confirmation dialog is shown, the SyncJob writes a summary of the synced resources to the console instead.
+	 * @param analyzer the analyzer for the files to be synced
+	 */
+	private void syncFilesPipelined(SyncFileAnalyzer analyzer) {
+		SyncPipeline syncPipeline = new SyncPipeline();
+		analyzer.setSyncPipeline(syncPipeline);
+
+		plugin.showConsole();
+		PluginScheduler.getInstance().submit(PluginScheduler.Pool.JOBS, new SyncJob(plugin, analyzer.getSyncList(), syncPipeline));
+
+		ProgressManager.getInstance().runProcessWithProgressSynchronously(analyzer, "Analyzing and syncing local and VFS files and folders ...", true, plugin.getProject());
+
+		if (analyzer.hasWarnings()) {
+			String message = "Infos/Warnings during file analysis:\n" + analyzer.getWarnings();
+			Messages.showMessageDialog(message, "OpenCms VFS Sync", Messages.getInformationIcon());
+		}
+	}
+
+	/**
+	 * Checks if the given files can be synced using the fast path: the fast path must be enabled, no confirmation
+	 * dialog may be requested (the fast path never shows one) and only a few plain files (no folders or modules) may
+	 * be selected.
+	 * @param syncFiles the files to be synced
+	 * @return <code>true</code> if the fast path can be used, <code>false</code> otherwise
+	 */
+	private boolean isFastPathApplicable(List<File> syncFiles) {
+		if (!config.isSyncFastPathEnabled() || showConfirmDialog || pullMetaDataOnly || syncFiles.isEmpty() || syncFiles.size() > FAST_PATH_MAX_FILES) {
+			return false;
+		}
+		for (File file : syncFiles) {
+			if (!file.isFile()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Syncs a few plain files without modal progress dialog. Only the documents of the given files are saved, the
+	 * analysis and the sync are done on a thread of the plugin's job executor with one VFS lookup per file, the results
+	 * and warnings are reported in the console.
+	 * @param syncFiles the files to be synced
+	 */
+	private void syncFilesFast(final List<File> syncFiles) {
+		final long start = System.currentTimeMillis();
+		saveDocuments(syncFiles);
+		plugin.showConsole();
+
+		PluginScheduler.getInstance().submit(PluginScheduler.Pool.JOBS, new Runnable() {
+			@Override
+			public void run() {
+				OpenCmsToolWindowConsole console = plugin.getConsole();
+				SyncFileAnalyzer analyzer;
+				try {
+					analyzer = new SyncFileAnalyzer(plugin, syncFiles, false, false);
+				}
+				catch (CmsConnectionException e) {
+					console.error(e.getMessage());
+					return;
+				}
+				analyzer.analyzeWithoutProgress();
+
+				if (analyzer.hasWarnings()) {
+					console.info("Infos/Warnings during file analysis:\n" + analyzer.getWarnings());
+				}
+				SyncList syncList = analyzer.getSyncList();
+				if (syncList.isEmpty()) {
+					console.info("Nothing to sync");
+				}
+				else {
+					new SyncJob(plugin, syncList).run();
+				}
+				long duration = System.currentTimeMillis() - start;
+				LOG.info("Fast path sync of " + syncFiles.size() + " file(s) finished in " + duration + " ms");
+				console.info("Synced in " + duration + " ms");
+			}
+		});
+	}
+
+	/**
+	 * Saves the unsaved documents of the given files (if there are any)
+	 * @param files the files whose documents should be saved
+	 */
+	private static void saveDocuments(List<File> files) {
+		FileDocumentManager documentManager = FileDocumentManager.getInstance();
+		LocalFileSystem localFileSystem = LocalFileSystem.getInstance();
+		for (File file : files) {
+			VirtualFile virtualFile = localFileSystem.findFileByIoFile(file);
+			if (virtualFile == null) {
+				continue;
+			}
+			Document document = documentManager.getCachedDocument(virtualFile);
+			if (document != null && documentManager.isDocumentUnsaved(document)) {
+				documentManager.saveDocument(document);
+			}
+		}
+	}
+
 	private void assembleConfirmMessage(StringBuilder message, SyncList syncEntities) {
 		int numSyncEntities = syncEntities.size();
 		if (message.length() > 0) {
@@ -0,0 +1,272 @@
+/*
+ * This file is part of the OpenCms plugin for IntelliJ by mediaworx.
+ *
+ * For further information about the OpenCms plugin for IntelliJ, please
+ * see the project website at GitHub:
+ * https://github.com/mediaworx/opencms-intellijplugin
+ *
+ * Copyright (C) 2007-2016 mediaworx berlin AG (http://www.mediaworx.com)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.mediaworx.intellij.opencmsplugin.sync;
+
+import com.intellij.openapi.diagnostic.Logger;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Persistent index of the state of a module's resources after the last successful sync. For every synced file or
+ * folder the index contains the VFS path, the VFS object id, the VFS modification date, the local modification date,
+ * the file size and a content hash. Resources whose local and VFS state still match the index haven't changed since
+ * the last sync and don't have to be looked up in the VFS again.
+ * <br /><br />
+ * The index is stored in a file next to the module's manifest root. All methods are synchronized since the index is
+ * updated by parallel sync workers.
+ */
+public class SyncBaseline {
+
+	private static final Logger LOG = Logger.getInstance(SyncBaseline.class);
+
+	/** name of the index file, stored in the parent folder of the module's manifest root */
+	public static final String BASELINE_FILENAME = ".opencms-sync-baseline";
+
+	private static final String HEADER = "# OpenCms sync baseline v1";
+	private static final String SEPARATOR = "\t";
+	private static final String NO_HASH = "-";
+
+	private File baselineFile;
+	private SortedMap<String, Entry> entries;
+	private boolean loaded;
+	private boolean dirty;
+
+	/**
+	 * Creates a new baseline index that is stored in the given file. The index is loaded lazily.
+	 * @param baselineFile the file the index is stored in
+	 */
+	public SyncBaseline(File baselineFile) {
+		this.baselineFile = baselineFile;
+		entries = new TreeMap<String, Entry>();
+	}
+
+	private void ensureLoaded() {
+		if (loaded) {
+			return;
+		}
+		loaded = true;
+		if (!baselineFile.isFile()) {
+			return;
+		}
+		try {
+			for (String line : FileUtils.readLines(baselineFile, StandardCharsets.UTF_8)) {
+				if (line.length() == 0 || line.startsWith("#")) {
+					continue;
+				}
+				String[] fields = StringUtils.splitPreserveAllTokens(line, SEPARATOR);
+				if (fields.length != 6) {
+					LOG.warn("Ignoring invalid line in sync baseline " + baselineFile.getPath() + ": " + line);
+					continue;
+				}
+				Entry entry = new Entry(fields[0], fields[1], Long.parseLong(fields[2]), Long.parseLong(fields[3]),
+						Long.parseLong(fields[4]), NO_HASH.equals(fields[5]) ? null : fields[5]);
+				entries.put(entry.getVfsPath(), entry);
+			}
+		}
+		catch (IOException | NumberFormatException e) {
+			LOG.warn("The sync baseline " + baselineFile.getPath() + " could not be read, starting with an empty baseline", e);
+			entries.clear();
+		}
+	}
+
+	/**
+	 * @param vfsPath the VFS path
+	 * @return the baseline entry for the given VFS path, <code>null</code> if there is none
+	 */
+	public synchronized Entry getEntry(String vfsPath) {
+		ensureLoaded();
+		return entries.get(vfsPath);
+	}
+
+	/**
+	 * @return <code>true</code> if the baseline contains no entries, <code>false</code> otherwise
+	 */
+	public synchronized boolean isEmpty() {
+		ensureLoaded();
+		return entries.isEmpty();
+	}
+
+	/**
+	 * Returns all entries for resources below the given VFS folder path (not including the folder itself)
+	 * @param folderVfsPath the VFS path of the folder
+	 * @return all entries in the subtree, sorted by VFS path
+	 */
+	public synchronized List<Entry> getSubtreeEntries(String folderVfsPath) {
+		ensureLoaded();
+		String prefix = folderVfsPath.endsWith("/") ? folderVfsPath : folderVfsPath + "/";
+		// all paths starting with prefix are sorted between prefix and prefix + Character.MAX_VALUE
+		return new ArrayList<Entry>(entries.subMap(prefix, prefix + Character.MAX_VALUE).values());
+	}
+
+	/**
+	 * Records the state of a synced resource. The local file must already carry the modification date set by the
+	 * sync.
+	 * @param vfsPath      the resource's VFS path
+	 * @param objectId     the resource's VFS object id
+	 * @param vfsDate      the resource's VFS modification date
+	 * @param file         the local file or folder
+	 * @param contentHash  the local file's content hash (see {@link ContentDigestCache#getDigest(File)}), may be
+	 *                     <code>null</code> if the hash is unknown (ignored for folders)
+	 */
+	public synchronized void record(String vfsPath, String objectId, long vfsDate, File file, String contentHash) {
+		ensureLoaded();
+		Entry entry;
+		if (file.isDirectory()) {
+			entry = new Entry(vfsPath, objectId, vfsDate, file.lastModified(), -1, null);
+		}
+		else {
+			entry = new Entry(vfsPath, objectId, vfsDate, file.lastModified(), file.length(), contentHash);
+		}
+		entries.put(vfsPath, entry);
+		dirty = true;
+	}
+
+	/**
+	 * Removes the entries for the given VFS path and all resources below it
+	 * @param vfsPath the VFS path of the deleted resource
+	 */
+	public synchronized void remove(String vfsPath) {
+		ensureLoaded();
+		if (entries.remove(vfsPath) != null) {
+			dirty = true;
+		}
+		SortedMap<String, Entry> subtree = entries.subMap(vfsPath + "/", vfsPath + "/" + Character.MAX_VALUE);
+		if (!subtree.isEmpty()) {
+			subtree.clear();
+			dirty = true;
+		}
+	}
+
+	/**
+	 * Writes the baseline to its file, if it was changed since it was loaded or saved
+	 */
+	public synchronized void save() {
+		if (!dirty) {
+			return;
+		}
+		List<String> lines = new ArrayList<String>(entries.size() + 1);
+		lines.add(HEADER);
+		for (Entry entry : entries.values()) {
+			lines.add(entry.getVfsPath() + SEPARATOR + entry.getObjectId() + SEPARATOR + entry.getVfsDate() + SEPARATOR
+					+ entry.getRfsDate() + SEPARATOR + entry.getSize() + SEPARATOR
+					+ (entry.getContentHash() != null ? entry.getContentHash() : NO_HASH));
+		}
+		try {
+			FileUtils.writeLines(baselineFile, StandardCharsets.UTF_8.name(), lines, "\n");
+			dirty = false;
+		}
+		catch (IOException e) {
+			LOG.warn("The sync baseline " + baselineFile.getPath() + " could not be written", e);
+		}
+	}
+
+	/**
+	 * State of a resource after the last successful sync
+	 */
+	public static class Entry {
+
+		private String vfsPath;
+		private String objectId;
+		private long vfsDate;
+		private long rfsDate;
+		private long size;
+		private String contentHash;
+
+		Entry(String vfsPath, String objectId, long vfsDate, long rfsDate, long size, String contentHash) {
+			this.vfsPath = vfsPath;
+			this.objectId = objectId;
+			this.vfsDate = vfsDate;
+			this.rfsDate = rfsDate;
+			this.size = size;
+			this.contentHash = contentHash;
+		}
+
+		/**
+		 * @return the resource's VFS path
+		 */
+		public String getVfsPath() {
+			return vfsPath;
+		}
+
+		/**
+		 * @return the resource's VFS object id
+		 */
+		public String getObjectId() {
+			return objectId;
+		}
+
+		/**
+		 * @return the resource's VFS modification date after the last sync
+		 */
+		public long getVfsDate() {
+			return vfsDate;
+		}
+
+		/**
+		 * @return the local file's modification date after the last sync
+		 */
+		public long getRfsDate() {
+			return rfsDate;
+		}
+
+		/**
+		 * @return the local file's size after the last sync, -1 for folders
+		 */
+		public long getSize() {
+			return size;
+		}
+
+		/**
+		 * @return the local file's content hash after the last sync, <code>null</code> for folders
+		 */
+		public String getContentHash() {
+			return contentHash;
+		}
+
+		/**
+		 * @return <code>true</code> if the entry represents a folder, <code>false</code> otherwise
+		 */
+		public boolean isFolder() {
+			return size < 0;
+		}
+
+		/**
+		 * Checks if the local file still has the state recorded after the last sync
+		 * @param file the local file
+		 * @return <code>true</code> if the local file is unchanged, <code>false</code> otherwise
+		 */
+		public boolean matchesLocalState(File file) {
+			if (isFolder()) {
+				return file.isDirectory();
+			}
+			return file.isFile() && file.lastModified() == rfsDate && file.length() == size;
+		}
+	}
+}
@@ -27,6 +27,7 @@ package com.mediaworx.intellij.opencmsplugin.sync;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.progress.ProgressManager;
 import com.mediaworx.intellij.opencmsplugin.OpenCmsPlugin;
+import com.mediaworx.intellij.opencmsplugin.entities.SyncEntity;
 import com.mediaworx.intellij.opencmsplugin.entities.SyncFile;
 import com.mediaworx.intellij.opencmsplugin.entities.SyncFolder;
 import com.mediaworx.intellij.opencmsplugin.exceptions.CmsConnectionException;
@@ -38,7 +39,6 @@ import com.mediaworx.intellij.opencmsplugin.tools.VfsFileAnalyzer;
 import org.apache.chemistry.opencmis.client.api.CmisObject;
 import org.apache.chemistry.opencmis.client.api.Document;
 import org.apache.chemistry.opencmis.client.api.Folder;
-import org.apache.chemistry.opencmis.client.api.ItemIterable;
 import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.filefilter.TrueFileFilter;
@@ -55,12 +55,42 @@ class SyncFileAnalyzer extends VfsFileAnalyzer implements Runnable {
 
 	private VfsAdapter vfsAdapter;
 
+	/** snapshot of the VFS subtrees handled by the analyzer, <code>null</code> if VFS tree prefetching is disabled */
+	private VfsTreeSnapshot vfsTreeSnapshot;
+
+	/** VFS modification dates by object id, as retrieved while validating the sync baselines */
+	private Map<String, Long> validatedVfsDates;
+
+	/** modules whose sync baselines were used (and possibly updated) during the analysis */
+	private Set<OpenCmsModule> baselineModules;
+
+	/** pipeline the sync entities are published to in pipelined sync mode, <code>null</code> otherwise */
+	private SyncPipeline syncPipeline;
+
 	private static final String CLASSES_FOLDER = "/classes";
 
 	private boolean pullAllMetaInformation;
+
+	/** flag denoting if VFS objects are read bypassing the CMIS session cache (used if the cache isn't cleared) */
+	private boolean bypassCache;
+
 	private boolean executeSync = true;
 
 	SyncFileAnalyzer(final OpenCmsPlugin plugin, final List<File> syncFiles, boolean pullAllMetaInformation) throws CmsConnectionException {
+		this(plugin, syncFiles, pullAllMetaInformation, true);
+	}
+
+	/**
+	 * Creates a new analyzer for the given files
+	 * @param plugin                 the current plugin instance
+	 * @param syncFiles              local files (and folders) that are used as starting point for the sync
+	 * @param pullAllMetaInformation <code>true</code> if only meta data should be pulled
+	 * @param clearCache             <code>true</code> if the CMIS session cache should be cleared before the analysis,
+	 *                               <code>false</code> if the cache should be kept (VFS objects are read from the
+	 *                               repository bypassing the cache then, so the analysis never uses outdated objects)
+	 * @throws CmsConnectionException if the CMIS session can't be started
+	 */
+	SyncFileAnalyzer(final OpenCmsPlugin plugin, final List<File> syncFiles, boolean pullAllMetaInformation, boolean clearCache) throws CmsConnectionException {
 
 		super(plugin, syncFiles);
 
@@ -75,9 +105,18 @@ class SyncFileAnalyzer extends VfsFileAnalyzer implements Runnable {
 			// Try again to connect
 			vfsAdapter.startSession();
 		}
-		this.vfsAdapter.clearCache();
+		if (clearCache) {
+			this.vfsAdapter.clearCache();
+		}
+		bypassCache = !clearCache;
+
+		if (plugin.getPluginConfiguration().isVfsTreePrefetchEnabled()) {
+			vfsTreeSnapshot = new VfsTreeSnapshot(!bypassCache);
+		}
 
 		moduleResourcesToBePulled = new ArrayList<OpenCmsModuleResource>();
+		validatedVfsDates = new HashMap<String, Long>();
+		baselineModules = new LinkedHashSet<OpenCmsModule>();
 	}
 
 	@Override
@@ -85,16 +124,72 @@ class SyncFileAnalyzer extends VfsFileAnalyzer implements Runnable {
 		progressIndicator = ProgressManager.getInstance().getProgressIndicator();
 		progressIndicator.setIndeterminate(true);
 		progressIndicator.setText("Calculating resources to sync, please wait");
+		analyze();
+	}
+
+	/**
+	 * Runs the analysis on the current thread without a progress indicator (used for the sync fast path, see
+	 * {@link OpenCmsSyncer})
+	 */
+	void analyzeWithoutProgress() {
+		progressIndicator = null;
+		analyze();
+	}
+
+	/**
+	 * @return <code>true</code> if the analysis was canceled by the user, <code>false</code> otherwise
+	 */
+	private boolean isCanceled() {
+		return progressIndicator != null && progressIndicator.isCanceled();
+	}
 
-		analyzeFiles();
+	private void analyze() {
+		try {
+			analyzeFiles();
 
-		if (!progressIndicator.isCanceled()) {
-			if (moduleResourcesToBePulled != null && moduleResourcesToBePulled.size() > 0) {
-				handleModuleResourcesToBePulled(moduleResourcesToBePulled);
+			if (!isCanceled()) {
+				if (moduleResourcesToBePulled != null && moduleResourcesToBePulled.size() > 0) {
+					handleModuleResourcesToBePulled(moduleResourcesToBePulled);
+				}
+			}
+			else {
+				executeSync = false;
 			}
 		}
-		else {
-			executeSync = false;
+		finally {
+			if (syncPipeline != null) {
+				if (executeSync && !isCanceled()) {
+					syncPipeline.finish();
+				}
+				else {
+					syncPipeline.cancel();
+				}
+			}
+		}
+
+		// store baseline entries for unchanged resources found during the analysis
+		for (OpenCmsModule ocmsModule : baselineModules) {
+			ocmsModule.getSyncBaseline().save();
+		}
+	}
+
+	/**
+	 * Enables pipelined sync mode: every entity added to the sync list is published to the given pipeline, so it can
+	 * be synced while the analysis is still running
+	 * @param syncPipeline the pipeline consumed by the SyncJob
+	 */
+	void setSyncPipeline(SyncPipeline syncPipeline) {
+		this.syncPipeline = syncPipeline;
+	}
+
+	/**
+	 * Adds an entity to the sync list and publishes it to the sync pipeline in pipelined sync mode
+	 * @param syncEntity the entity to be synced
+	 */
+	private void addToSyncList(SyncEntity syncEntity) {
+		syncList.add(syncEntity);
+		if (syncPipeline != null && !syncPipeline.publish(syncEntity)) {
+			LOG.info("The sync pipeline was closed, " + syncEntity.getVfsPath() + " is not synced");
 		}
 	}
 
@@ -123,13 +218,232 @@ class SyncFileAnalyzer extends VfsFileAnalyzer implements Runnable {
 	}
 
 	protected void handleModuleResource(OpenCmsModule ocmsModule, File file) {
+		if (file.isDirectory()) {
+			String vfsPath = ocmsModule.getVfsPathForFile(file);
+			if (isSubtreeUnchangedSinceLastSync(ocmsModule, file, vfsPath)) {
+				LOG.info("Neither the RFS nor the VFS changed since the last sync, skipping " + vfsPath);
+				addHandledFile(file);
+				return;
+			}
+			prefetchVfsTree(vfsPath);
+		}
 		walkFileTree(ocmsModule, file, FolderSyncMode.AUTO);
 	}
 
+	/**
+	 * Checks if a folder's subtree is unchanged in the RFS and the VFS since the last sync, using the module's sync
+	 * baseline. The VFS state is validated with a single query for all resources in the subtree.
+	 * @param ocmsModule the module containing the folder
+	 * @param folder     the local folder
+	 * @param vfsPath    the folder's VFS path
+	 * @return <code>true</code> if the subtree doesn't have to be synced, <code>false</code> otherwise
+	 */
+	private boolean isSubtreeUnchangedSinceLastSync(OpenCmsModule ocmsModule, File folder, String vfsPath) {
+		if (pullAllMetaInformation) {
+			return false;
+		}
+		SyncBaseline baseline = ocmsModule.getSyncBaseline();
+		baselineModules.add(ocmsModule);
+		if (baseline.isEmpty()) {
+			return false;
+		}
+		Map<String, Long> vfsDates = vfsAdapter.getModificationDatesInTree(vfsPath);
+		if (vfsDates == null) {
+			return false;
+		}
+		validatedVfsDates.putAll(vfsDates);
+
+		List<SyncBaseline.Entry> entries = baseline.getSubtreeEntries(vfsPath);
+		if (entries.size() != vfsDates.size()) {
+			return false;
+		}
+		for (SyncBaseline.Entry entry : entries) {
+			Long vfsDate = vfsDates.get(entry.getObjectId());
+			if (vfsDate == null || vfsDate != entry.getVfsDate()) {
+				return false;
+			}
+		}
+		return countUnchangedLocalResources(ocmsModule, baseline, folder) == entries.size();
+	}
+
+	/**
+	 * Counts the resources below the given local folder, as long as all of them match the sync baseline
+	 * @return the number of resources below the folder, -1 if any resource doesn't match the baseline
+	 */
+	private int countUnchangedLocalResources(OpenCmsModule ocmsModule, SyncBaseline baseline, File folder) {
+		File[] children = folder.listFiles();
+		if (children == null) {
+			return -1;
+		}
+		int count = 0;
+		for (File child : children) {
+			if (fileOrPathIsIgnored(plugin.getPluginConfiguration(), child)) {
+				continue;
+			}
+			SyncBaseline.Entry entry = baseline.getEntry(ocmsModule.getVfsPathForFile(child));
+			if (entry == null || !entry.matchesLocalState(child)) {
+				return -1;
+			}
+			count++;
+			if (child.isDirectory()) {
+				int numDescendants = countUnchangedLocalResources(ocmsModule, baseline, child);
+				if (numDescendants < 0) {
+					return -1;
+				}
+				count += numDescendants;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Checks if a file is unchanged in the RFS and the VFS since the last sync, using the module's sync baseline and
+	 * the VFS modification dates retrieved while validating the baseline.
+	 * @param ocmsModule the module containing the file
+	 * @param file       the local file
+	 * @param vfsPath    the file's VFS path
+	 * @return <code>true</code> if the file doesn't have to be synced, <code>false</code> otherwise
+	 */
+	private boolean isFileUnchangedSinceLastSync(OpenCmsModule ocmsModule, File file, String vfsPath) {
+		if (pullAllMetaInformation || validatedVfsDates.isEmpty()) {
+			return false;
+		}
+		SyncBaseline.Entry entry = ocmsModule.getSyncBaseline().getEntry(vfsPath);
+		if (entry == null || entry.isFolder() || !entry.matchesLocalState(file)) {
+			return false;
+		}
+		Long vfsDate = validatedVfsDates.get(entry.getObjectId());
+		return vfsDate != null && vfsDate == entry.getVfsDate();
+	}
+
+	/**
+	 * Records a resource that exists in the RFS and the VFS and doesn't have to be synced in the module's sync
+	 * baseline
+	 */
+	private void recordUnchangedResource(OpenCmsModule ocmsModule, String vfsPath, File file, CmisObject vfsObject) {
+		if (vfsObject.getLastModificationDate() == null) {
+			return;
+		}
+		SyncBaseline baseline = ocmsModule.getSyncBaseline();
+		SyncBaseline.Entry entry = baseline.getEntry(vfsPath);
+		long vfsDate = vfsObject.getLastModificationDate().getTimeInMillis();
+		boolean vfsUnchanged = entry != null && entry.getObjectId().equals(vfsObject.getId()) && entry.getVfsDate() == vfsDate;
+		if (vfsUnchanged && entry.matchesLocalState(file)) {
+			return;
+		}
+		// keep the known content hash if the file's size didn't change
+		String contentHash = vfsUnchanged && entry.getSize() == file.length() ? entry.getContentHash() : null;
+		baseline.record(vfsPath, vfsObject.getId(), vfsDate, file, contentHash);
+		baselineModules.add(ocmsModule);
+	}
+
+	/**
+	 * Checks if the size of a local file changed since the last transfer, using the size recorded in the module's sync
+	 * baseline. The VFS content length can't be used, because OpenCms rewrites XML contents on write (link and UUID
+	 * processing), so local and VFS sizes of unchanged files may differ. Only works if the VFS file didn't change
+	 * since the last sync (otherwise the modification dates decide).
+	 * @return <code>true</code> if the local size is known to have changed, <code>false</code> otherwise
+	 */
+	private boolean isSizeChangedSinceLastSync(OpenCmsModule ocmsModule, File file, String vfsPath, CmisObject vfsObject) {
+		SyncBaseline.Entry entry = ocmsModule.getSyncBaseline().getEntry(vfsPath);
+		if (entry == null || entry.isFolder()) {
+			return false;
+		}
+		if (!entry.getObjectId().equals(vfsObject.getId()) || entry.getVfsDate() != vfsObject.getLastModificationDate().getTimeInMillis()) {
+			return false;
+		}
+		return entry.getSize() != file.length();
+	}
+
+	/**
+	 * Checks if a local file's content is identical to the content of the VFS file, using the content digest recorded
+	 * in the module's sync baseline. This only works if the VFS file didn't change since the last sync.
+	 * @return <code>true</code> if the content is known to be identical, <code>false</code> otherwise
+	 */
+	private boolean isContentUnchangedSinceLastSync(OpenCmsModule ocmsModule, File file, String vfsPath, CmisObject vfsObject) {
+		SyncBaseline.Entry entry = ocmsModule.getSyncBaseline().getEntry(vfsPath);
+		if (entry == null || entry.isFolder() || entry.getContentHash() == null) {
+			return false;
+		}
+		if (!entry.getObjectId().equals(vfsObject.getId()) || entry.getVfsDate() != vfsObject.getLastModificationDate().getTimeInMillis()) {
+			return false;
+		}
+		if (entry.getSize() != file.length()) {
+			return false;
+		}
+		return entry.getContentHash().equals(ContentDigestCache.getInstance().getDigest(file));
+	}
+
+	/**
+	 * Resets the local modification date of a file whose content is identical to the VFS file's content to the VFS
+	 * modification date, so no transfer is necessary
+	 */
+	private void reconcileTimestamp(OpenCmsModule ocmsModule, File file, String vfsPath, CmisObject vfsObject) {
+		long vfsDate = vfsObject.getLastModificationDate().getTimeInMillis();
+		if (file.setLastModified(vfsDate)) {
+			String contentHash = ocmsModule.getSyncBaseline().getEntry(vfsPath).getContentHash();
+			ocmsModule.getSyncBaseline().record(vfsPath, vfsObject.getId(), vfsDate, file, contentHash);
+			baselineModules.add(ocmsModule);
+		}
+		else {
+			LOG.info("The modification date of " + file.getPath() + " could not be reset");
+		}
+	}
+
+	/**
+	 * Fetches the VFS subtree under the given path into the VFS tree snapshot (if prefetching is enabled), so the
+	 * subtree can be compared to the RFS without retrieving each VFS resource separately.
+	 * @param vfsPath root path of the VFS subtree
+	 */
+	private void prefetchVfsTree(String vfsPath) {
+		if (vfsTreeSnapshot == null) {
+			return;
+		}
+		try {
+			vfsTreeSnapshot.addSubtree(vfsAdapter, vfsPath);
+		}
+		catch (CmsPermissionDeniedException e) {
+			// the permission problem is reported when the resource is handled
+			LOG.info("Can't prefetch the VFS tree for " + vfsPath + ", permission denied");
+		}
+	}
+
+	/**
+	 * Returns the VFS object at the given path, from the VFS tree snapshot if it covers the path, from the VFS
+	 * otherwise.
+	 * @param vfsPath the VFS path
+	 * @param profile the operation context profile used if the object is retrieved from the VFS
+	 * @return the VFS object, <code>null</code> if it doesn't exist
+	 * @throws CmsPermissionDeniedException if the VFS object can't be accessed
+	 */
+	private CmisObject getVfsObject(String vfsPath, VfsAdapter.ContextProfile profile) throws CmsPermissionDeniedException {
+		if (vfsTreeSnapshot != null && vfsTreeSnapshot.covers(vfsPath)) {
+			return vfsTreeSnapshot.getObject(vfsPath);
+		}
+		return vfsAdapter.getVfsObject(vfsPath, profile, !bypassCache);
+	}
+
+	/**
+	 * Returns the children of the given VFS folder, from the VFS tree snapshot if it contains the folder's children,
+	 * from the VFS otherwise.
+	 * @param vfsFolder the VFS folder
+	 * @param vfsPath   the VFS path of the folder
+	 * @return the children of the folder
+	 */
+	private Iterable<CmisObject> getVfsChildren(Folder vfsFolder, String vfsPath) {
+		if (vfsTreeSnapshot != null) {
+			List<CmisObject> children = vfsTreeSnapshot.getChildren(vfsPath);
+			if (children != null) {
+				return children;
+			}
+		}
+		return vfsFolder.getChildren(vfsAdapter.getOperationContext(VfsAdapter.ContextProfile.ANALYSIS, !bypassCache));
+	}
+
 	// TODO: handle cases where a folder on the vfs has the same name as a file on the rfs or vice versa
 	private void walkFileTree(OpenCmsModule ocmsModule, File file, FolderSyncMode folderSyncMode) {
 
-		if (progressIndicator.isCanceled()) {
+		if (isCanceled()) {
 			executeSync = false;
 			return;
 		}
@@ -154,6 +468,12 @@ class SyncFileAnalyzer extends VfsFileAnalyzer implements Runnable {
 		boolean vfsObjectExists;
 		CmisObject vfsObject = null;
 
+		// neither the local file nor the VFS file changed since the last sync
+		if (folderSyncMode == FolderSyncMode.AUTO && !file.isDirectory() && isFileUnchangedSinceLastSync(ocmsModule, file, vfsPath)) {
+			LOG.debug(vfsPath + " is unchanged since the last sync, skipping");
+			return;
+		}
+
 		// it is known, that the VFS resource does not exist (because a descendant of a nonexistent folder is handled)
 		if (folderSyncMode == FolderSyncMode.PUSH) {
 			vfsObjectExists = false;
@@ -162,7 +482,7 @@ class SyncFileAnalyzer extends VfsFileAnalyzer implements Runnable {
 		else {
 			// get the corresponding vfs object (if it exists)
 			try {
-				vfsObject = vfsAdapter.getVfsObject(vfsPath);
+				vfsObject = getVfsObject(vfsPath, VfsAdapter.ContextProfile.ANALYSIS);
 			}
 			catch (CmsPermissionDeniedException e) {
 				String message = "Skipping " + vfsPath + ", permission denied\n";
@@ -214,10 +534,13 @@ class SyncFileAnalyzer extends VfsFileAnalyzer implements Runnable {
 		LOG.info("Children:");
 
 		if (pullAllMetaInformation) {
-			syncList.add(new SyncFolder(ocmsModule, vfsPath, file, vfsObject, SyncAction.PULL, true));
+			addToSyncList(new SyncFolder(ocmsModule, vfsPath, file, vfsObject, SyncAction.PULL, true));
+		}
+		else {
+			recordUnchangedResource(ocmsModule, vfsPath, file, vfsObject);
 		}
 
-		ItemIterable<CmisObject> vfsChildren = vfsObject.getChildren();
+		Iterable<CmisObject> vfsChildren = getVfsChildren(vfsObject, vfsPath);
 		Map<String, CmisObject> vfsChildMap = new LinkedHashMap<String, CmisObject>();
 		for (CmisObject vfsChild : vfsChildren) {
 			vfsChildMap.put(vfsChild.getName(), vfsChild);
@@ -233,7 +556,7 @@ class SyncFileAnalyzer extends VfsFileAnalyzer implements Runnable {
 		if (rfsChildren != null && rfsChildren.length > 0) {
 			// handle resources in the RFS
 			for (File rfsChild : rfsChildren) {
-				if (progressIndicator.isCanceled()) {
+				if (isCanceled()) {
 					return;
 				}
 				String filename = rfsChild.getName();
@@ -266,7 +589,7 @@ class SyncFileAnalyzer extends VfsFileAnalyzer implements Runnable {
 	private void handleVfsOnlyChildren(OpenCmsModule ocmsModule, String parentVfsPath, Map<String, CmisObject> vfsChildMap) {
 		LOG.info("Handle files/folders that exist only on the vfs");
 		for (CmisObject vfsChild : vfsChildMap.values()) {
-			if (progressIndicator.isCanceled()) {
+			if (isCanceled()) {
 				return;
 			}
 			String childVfsPath = parentVfsPath + vfsChild.getName();
@@ -286,47 +609,64 @@ class SyncFileAnalyzer extends VfsFileAnalyzer implements Runnable {
 		LOG.info("It's a file that exists on the VFS and the RFS");
 
 		if (pullAllMetaInformation) {
-			syncList.add(new SyncFile(ocmsModule, vfsPath, file, vfsObject, SyncAction.PULL, true));
+			addToSyncList(new SyncFile(ocmsModule, vfsPath, file, vfsObject, SyncAction.PULL, true));
 		}
 		else {
 			Date localDate = new Date(file.lastModified());
 			Date vfsDate = vfsObject.getLastModificationDate().getTime();
+			ChangeDetectionMode changeDetectionMode = plugin.getPluginConfiguration().getChangeDetectionMode();
+			boolean sizeDiffers = changeDetectionMode != ChangeDetectionMode.TIMESTAMP && isSizeChangedSinceLastSync(ocmsModule, file, vfsPath, vfsObject);
 
-			if (ocmsModule.getSyncMode() == SyncMode.SYNC) {
+			if (changeDetectionMode == ChangeDetectionMode.CONTENT_DIGEST && !sizeDiffers && vfsDate.compareTo(localDate) != 0
+					&& isContentUnchangedSinceLastSync(ocmsModule, file, vfsPath, vfsObject)) {
+				LOG.info("VFS file and RFS file have the same content, only the modification date is reset");
+				reconcileTimestamp(ocmsModule, file, vfsPath, vfsObject);
+			}
+			else if (ocmsModule.getSyncMode() == SyncMode.SYNC) {
 				LOG.info("SyncMode is SYNC, so compare dates");
 				if (localDate.after(vfsDate)) {
 					LOG.info("RFS file is newer, PUSH");
-					syncList.add(new SyncFile(ocmsModule, vfsPath, file, vfsObject, SyncAction.PUSH, true));
+					addToSyncList(new SyncFile(ocmsModule, vfsPath, file, vfsObject, SyncAction.PUSH, true));
 				}
 				else if (vfsDate.after(localDate)) {
 					LOG.info("VFS file is newer, PULL");
-					syncList.add(new SyncFile(ocmsModule, vfsPath, file, vfsObject, SyncAction.PULL, true));
+					addToSyncList(new SyncFile(ocmsModule, vfsPath, file, vfsObject, SyncAction.PULL, true));
+				}
+				else if (sizeDiffers) {
+					LOG.info("VFS file and RFS file have the same date, but the local size changed since the last sync, PUSH");
+					addToSyncList(new SyncFile(ocmsModule, vfsPath, file, vfsObject, SyncAction.PUSH, true));
 				}
 				else {
 					LOG.info("VFS file and RFS file have the same date, ignore");
+					recordUnchangedResource(ocmsModule, vfsPath, file, vfsObject);
 				}
 			}
-			// if the dates are different, add the resource with PUSH or PULL action, depending on the module's syncMode
-			else if (vfsDate.compareTo(localDate) != 0) {
+			// if the dates (or sizes) are different, add the resource with PUSH or PULL action, depending on the module's syncMode
+			else if (vfsDate.compareTo(localDate) != 0 || sizeDiffers) {
 				SyncAction syncAction = ocmsModule.getSyncMode() == SyncMode.PUSH ? SyncAction.PUSH : SyncAction.PULL;
 				LOG.info("SyncMode is " + ocmsModule.getSyncMode() + " and files are not equal, so force " + syncAction);
-				syncList.add(new SyncFile(ocmsModule, vfsPath, file, vfsObject, syncAction, true));
+				addToSyncList(new SyncFile(ocmsModule, vfsPath, file, vfsObject, syncAction, true));
+			}
+			else {
+				recordUnchangedResource(ocmsModule, vfsPath, file, vfsObject);
 			}
 		}
 	}
 
 	private void handleModuleResourcesToBePulled(List<OpenCmsModuleResource> moduleResourcesToBePulled) {
 		for (OpenCmsModuleResource moduleResourceToBePulled : moduleResourcesToBePulled) {
-			if (progressIndicator.isCanceled()) {
+			if (isCanceled()) {
 				executeSync = false;
 				return;
 			}
 
 			String vfsPath = moduleResourceToBePulled.getResourcePath();
+			prefetchVfsTree(vfsPath);
 
 			CmisObject vfsObject;
 			try {
-				vfsObject = vfsAdapter.getVfsObject(vfsPath);
+				// module resources that don't exist locally are always pulled
+				vfsObject = getVfsObject(vfsPath, VfsAdapter.ContextProfile.PULL);
 			}
 			catch (CmsPermissionDeniedException e) {
 				warnings.append("Skipping ").append(vfsPath).append(", permission denied\n");
@@ -354,7 +694,7 @@ class SyncFileAnalyzer extends VfsFileAnalyzer implements Runnable {
 		LOG.info("Adding RFS only file " + vfsPath);
 		SyncAction syncAction = getRfsOnlySyncAction(ocmsModule.getSyncMode());
 		SyncFile syncFile = new SyncFile(ocmsModule, vfsPath, file, vfsFile, syncAction, vfsFile != null);
-		syncList.add(syncFile);
+		addToSyncList(syncFile);
 	}
 
 	private void addRfsOnlyFolderTreeToSyncList(OpenCmsModule ocmsModule, String vfsPath, File file, boolean replaceExistingEntity) {
@@ -362,7 +702,7 @@ class SyncFileAnalyzer extends VfsFileAnalyzer implements Runnable {
 
 		SyncAction syncAction = getRfsOnlySyncAction(ocmsModule.getSyncMode());
 		SyncFolder syncFolder = new SyncFolder(ocmsModule, vfsPath, file, null, syncAction, replaceExistingEntity);
-		syncList.add(syncFolder);
+		addToSyncList(syncFolder);
 
 		if (syncAction != SyncAction.DELETE_RFS) {
 			LOG.info("Get children of folder " + vfsPath);
@@ -378,7 +718,7 @@ class SyncFileAnalyzer extends VfsFileAnalyzer implements Runnable {
 		LOG.info("Adding VFS only file " + vfsPath);
 		SyncAction syncAction = getVfsOnlySyncAction(ocmsModule.getSyncMode());
 		SyncFile syncFile = new SyncFile(ocmsModule, vfsPath, null, vfsObject, syncAction, replaceExistingEntity);
-		syncList.add(syncFile);
+		addToSyncList(syncFile);
 	}
 
 	private void addVfsOnlyFolderTreeToSyncList(OpenCmsModule ocmsModule, String vfsPath, CmisObject vfsObject, boolean replaceExistingEntity) {
@@ -386,12 +726,12 @@ class SyncFileAnalyzer extends VfsFileAnalyzer implements Runnable {
 
 		SyncAction syncAction = getVfsOnlySyncAction(ocmsModule.getSyncMode());
 		SyncFolder syncFolder = new SyncFolder(ocmsModule, vfsPath, null, vfsObject, syncAction, replaceExistingEntity);
-		syncList.add(syncFolder);
+		addToSyncList(syncFolder);
 
 		if (syncAction != SyncAction.DELETE_VFS) {
 			// traverse folder, add children to the SyncJob
 			LOG.info("Get children of VFS folder " + vfsPath);
-			ItemIterable<CmisObject> vfsChildren = ((Folder) vfsObject).getChildren();
+			Iterable<CmisObject> vfsChildren = getVfsChildren((Folder) vfsObject, vfsPath);
 			for (CmisObject child : vfsChildren) {
 				String childVfsPath = vfsPath + "/" + child.getName();
 
@@ -410,20 +750,20 @@ class SyncFileAnalyzer extends VfsFileAnalyzer implements Runnable {
 	private void addModuleResourceFileToSyncList(OpenCmsModule ocmsModule, String vfsPath, CmisObject vfsObject) {
 		LOG.info("Adding VFS module resource file " + vfsPath);
 		SyncFile syncFile = new SyncFile(ocmsModule, vfsPath, null, vfsObject, SyncAction.PULL, false);
-		syncList.add(syncFile);
+		addToSyncList(syncFile);
 	}
 
 	private void addModuleResourceFolderTreeToSyncList(OpenCmsModule ocmsModule, String vfsPath, CmisObject vfsObject) {
 		LOG.info("Adding VFS module resource folder " + vfsPath);
 
 		SyncFolder syncFolder = new SyncFolder(ocmsModule, vfsPath, null, vfsObject, SyncAction.PULL, false);
-		syncList.add(syncFolder);
+		addToSyncList(syncFolder);
 
 		// traverse folder, add children to the SyncJob
 		LOG.info("Get children of VFS folder " + vfsPath);
-		ItemIterable<CmisObject> vfsChildren = ((Folder) vfsObject).getChildren();
+		Iterable<CmisObject> vfsChildren = getVfsChildren((Folder) vfsObject, vfsPath);
 		for (CmisObject child : vfsChildren) {
-			if (progressIndicator.isCanceled()) {
+			if (isCanceled()) {
 				executeSync = false;
 				return;
 			}
@@ -26,7 +26,6 @@ package com.mediaworx.intellij.opencmsplugin.sync;
 
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.ui.Messages;
-import com.intellij.openapi.vfs.LocalFileSystem;
 import com.mediaworx.intellij.opencmsplugin.OpenCmsPlugin;
 import com.mediaworx.intellij.opencmsplugin.configuration.OpenCmsPluginConfigurationData;
 import com.mediaworx.intellij.opencmsplugin.connector.AutoPublishMode;
@@ -35,11 +34,15 @@ import com.mediaworx.intellij.opencmsplugin.entities.SyncEntity;
 import com.mediaworx.intellij.opencmsplugin.entities.SyncFolder;
 import com.mediaworx.intellij.opencmsplugin.exceptions.CmsPushException;
 import com.mediaworx.intellij.opencmsplugin.exceptions.OpenCmsConnectorException;
+import com.mediaworx.intellij.opencmsplugin.opencms.ExportPointIndex;
 import com.mediaworx.intellij.opencmsplugin.opencms.OpenCmsModule;
 import com.mediaworx.intellij.opencmsplugin.opencms.OpenCmsModuleExportPoint;
 import com.mediaworx.intellij.opencmsplugin.opencms.OpenCmsModuleResource;
 import com.mediaworx.intellij.opencmsplugin.tools.PluginTools;
+import com.mediaworx.intellij.opencmsplugin.tools.VfsRefreshCoalescer;
 import com.mediaworx.intellij.opencmsplugin.toolwindow.OpenCmsToolWindowConsole;
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.Document;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 
@@ -47,6 +50,8 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 
 /**
@@ -57,6 +62,9 @@ public class SyncJob implements Runnable {
 	private static final Logger LOG = Logger.getInstance(SyncJob.class);
 	public static final String ERROR_PREFIX = "ERROR: ";
 
+	/** delay (in milliseconds) before synced files are refreshed, refreshes of concurrent sync jobs are merged */
+	private static final long REFRESH_DELAY = 300;
+
 	private static final String CLASSES_PATH = "WEB-INF/classes";
 	private static final String IDE_CONNECTOR_PACKAGE = "com.mediaworx.opencms.ideconnector";
 	private static final Set<String> IDE_CONNECTOR_PARENT_PATHS = new HashSet<String>();
@@ -81,6 +89,11 @@ public class SyncJob implements Runnable {
 	private List<ExportEntity> exportList;
 	private List<String> publishList;
 	private boolean publish;
+	private Set<OpenCmsModule> syncedModules;
+	private VfsFolderCache folderCache;
+	private SyncPipeline syncPipeline;
+	private ExportPointIndex exportPointIndex;
+	private String webappRoot;
 
 	/**
 	 * Creates a new SyncJob for the given SyncList
@@ -88,13 +101,30 @@ public class SyncJob implements Runnable {
 	 * @param syncList list of SyncEntities to be synced by this SyncJob
 	 */
 	public SyncJob(OpenCmsPlugin plugin, SyncList syncList) {
+		this(plugin, syncList, null);
+	}
+
+	/**
+	 * Creates a new SyncJob for the given SyncList. If a sync pipeline is given, the SyncJob syncs the entities
+	 * published to the pipeline while the SyncList is still being filled by the SyncFileAnalyzer.
+	 * @param plugin       the current plugin instance
+	 * @param syncList     list of SyncEntities to be synced by this SyncJob
+	 * @param syncPipeline pipeline providing the entities to be synced in pipelined sync mode, <code>null</code> to
+	 *                     sync the entities contained in the SyncList
+	 */
+	SyncJob(OpenCmsPlugin plugin, SyncList syncList, SyncPipeline syncPipeline) {
 		this.plugin = plugin;
+		this.syncPipeline = syncPipeline;
 		config = plugin.getPluginConfiguration();
 		publish = config.isPluginConnectorEnabled() && config.getAutoPublishMode() == AutoPublishMode.ALL;
 		adapter = plugin.getVfsAdapter();
 		this.refreshEntityList = new ArrayList<SyncEntity>();
 		this.exportList = new ArrayList<ExportEntity>();
 		this.publishList = new ArrayList<String>();
+		this.syncedModules = new LinkedHashSet<OpenCmsModule>();
+		this.folderCache = new VfsFolderCache();
+		this.exportPointIndex = plugin.getOpenCmsModules().getExportPointIndex();
+		this.webappRoot = config.getWebappRoot();
 		setSyncList(syncList);
 	}
 
@@ -105,26 +135,47 @@ public class SyncJob implements Runnable {
 		console = plugin.getConsole();
 
 		int step = 1;
-		int numSteps = 1;
-		if (config.isPluginConnectorEnabled() && config.isPullMetadataEnabled()) {
-			numSteps += 1;
-		}
-		if (syncList.isSyncModuleMetaData()) {
-			numSteps += 2;
-		}
-		if (!pullMetadataOnly && publish) {
-			numSteps += 1;
-		}
-		if (!pullMetadataOnly && numExportEntities() > 0) {
-			numSteps += 1;
-		}
+		int numSteps = countSteps();
 
 
 		// ######## SYNC FILES / FOLDERS ################################
-		if (!pullMetadataOnly) {
+		if (syncPipeline != null) {
+			console.info("Step " + (step++) + ": Analyzing and syncing files and folders");
+			List<SyncEntity> syncedEntities = doPipelinedSync();
+			for (OpenCmsModule ocmsModule : syncedModules) {
+				ocmsModule.getSyncBaseline().save();
+			}
+			if (syncPipeline.isCanceled()) {
+				console.info("The analysis was canceled, remaining resources are not synced");
+				// the following steps must still be done for the entities that were synced already
+				syncList = createSyncListForSyncedEntities(syncedEntities);
+			}
+			if (syncList.isEmpty()) {
+				console.info("Nothing to sync");
+				refreshSyncedFiles();
+				console.info("#### SYNC FINISHED ####");
+				return;
+			}
+			logSyncSummary();
+			console.info("---- Sync finished ----\n");
+			// the number of steps is known only after the analysis is finished
+			numSteps = countSteps();
+		}
+		else if (!pullMetadataOnly) {
 			console.info("Step " + (step++) + "/" + numSteps + ": Syncing files and folders");
-			for (SyncEntity entity : syncList) {
-				doSync(entity);
+			int numWorkers = Math.min(config.getSyncWorkerCount(), syncList.size());
+			if (numWorkers > 1) {
+				doParallelSync(numWorkers);
+			}
+			else {
+				for (SyncEntity entity : syncList) {
+					SyncEntityLog entityLog = new SyncEntityLog(entity);
+					doSync(entity, adapter, entityLog);
+					handleSyncResult(entityLog);
+				}
+			}
+			for (OpenCmsModule ocmsModule : syncedModules) {
+				ocmsModule.getSyncBaseline().save();
 			}
 			console.info("---- Sync finished ----\n");
 		}
@@ -193,6 +244,35 @@ public class SyncJob implements Runnable {
 		}
 
 		// ######## REFRESH IDEA FILESYSTEM ##############################
+		refreshSyncedFiles();
+		console.info("#### SYNC FINISHED ####");
+	}
+
+	/**
+	 * @return the number of steps of this SyncJob (depends on the configuration and the contents of the sync list)
+	 */
+	private int countSteps() {
+		int numSteps = 1;
+		if (config.isPluginConnectorEnabled() && config.isPullMetadataEnabled()) {
+			numSteps += 1;
+		}
+		if (syncList.isSyncModuleMetaData()) {
+			numSteps += 2;
+		}
+		if (!pullMetadataOnly && publish) {
+			numSteps += 1;
+		}
+		if (!pullMetadataOnly && numExportEntities() > 0) {
+			numSteps += 1;
+		}
+		return numSteps;
+	}
+
+	/**
+	 * Requests an asynchronous refresh of the pulled or deleted files in IntelliJ's file system, the refresh is
+	 * coalesced with the refreshes of other sync jobs (see {@link VfsRefreshCoalescer})
+	 */
+	private void refreshSyncedFiles() {
 		if (hasRefreshEntities()) {
 			List<SyncEntity> pullEntityList = getRefreshEntityList();
 			List<File> refreshFiles = new ArrayList<File>(pullEntityList.size());
@@ -201,14 +281,8 @@ public class SyncJob implements Runnable {
 				refreshFiles.add(entity.getFile());
 			}
 
-			try {
-				LocalFileSystem.getInstance().refreshIoFiles(refreshFiles);
-			}
-			catch (Exception e) {
-				// if there's an exception then the file was not found.
-			}
+			VfsRefreshCoalescer.getInstance().refreshLater(refreshFiles, REFRESH_DELAY);
 		}
-		console.info("#### SYNC FINISHED ####");
 	}
 
 	private void setSyncList(SyncList syncList) {
@@ -217,14 +291,24 @@ public class SyncJob implements Runnable {
 
 		if (!syncList.isPullMetaDataOnly()) {
 			for (SyncEntity entity : syncList) {
-				if (entity.getSyncAction() == SyncAction.PULL || entity.getSyncAction() == SyncAction.DELETE_RFS) {
-					this.refreshEntityList.add(entity);
-				}
-				addSyncEntityToExportListIfNecessary(entity);
+				registerSyncEntity(entity);
 			}
 		}
 	}
 
+	/**
+	 * Registers an entity to be synced for the post sync steps (file system refresh, sync baseline update and export
+	 * point handling)
+	 * @param entity the entity to be synced
+	 */
+	private void registerSyncEntity(SyncEntity entity) {
+		if (entity.getSyncAction() == SyncAction.PULL || entity.getSyncAction() == SyncAction.DELETE_RFS) {
+			this.refreshEntityList.add(entity);
+		}
+		syncedModules.add(entity.getOcmsModule());
+		addSyncEntityToExportListIfNecessary(entity);
+	}
+
 	/**
 	 * @return the List of SyncEntities handled by this SyncJob
 	 */
@@ -239,27 +323,21 @@ public class SyncJob implements Runnable {
 			return;
 		}
 
-		List<OpenCmsModuleExportPoint> exportPoints = syncEntity.getOcmsModule().getExportPoints();
-
-		if (exportPoints != null) {
-
-			String localModuleVfsRoot = syncEntity.getOcmsModule().getLocalVfsRoot();
-			String entityVfsPath = syncEntity.getVfsPath();
+		if (exportPointIndex.isEmpty()) {
+			return;
+		}
 
-			for (OpenCmsModuleExportPoint exportPoint : exportPoints) {
-				String vfsSource = exportPoint.getVfsSource();
-				if (entityVfsPath.startsWith(vfsSource)) {
-					String destination = exportPoint.getRfsTarget();
-					String relativePath = entityVfsPath.substring(vfsSource.length());
-					ExportEntity exportEntity = new ExportEntity();
-					exportEntity.setSourcePath(localModuleVfsRoot+entityVfsPath);
-					exportEntity.setTargetPath(config.getWebappRoot() + "/" + destination + relativePath);
-					exportEntity.setVfsPath(entityVfsPath);
-					exportEntity.setDestination(destination);
-					exportEntity.setToBeDeleted(syncEntity.getSyncAction().isDeleteAction());
-					addExportEntity(exportEntity);
-				}
-			}
+		String entityVfsPath = syncEntity.getVfsPath();
+		OpenCmsModuleExportPoint exportPoint = exportPointIndex.getExportPoint(entityVfsPath);
+
+		if (exportPoint != null) {
+			ExportEntity exportEntity = new ExportEntity();
+			exportEntity.setSourcePath(syncEntity.getOcmsModule().getLocalVfsRoot() + entityVfsPath);
+			exportEntity.setTargetPath(webappRoot + "/" + exportPoint.getTargetPathForVfsResource(entityVfsPath));
+			exportEntity.setVfsPath(entityVfsPath);
+			exportEntity.setDestination(exportPoint.getRfsTarget());
+			exportEntity.setToBeDeleted(syncEntity.getSyncAction().isDeleteAction());
+			addExportEntity(exportEntity);
 		}
 	}
 
@@ -284,35 +362,282 @@ public class SyncJob implements Runnable {
 	}
 
 
-	private void doSync(SyncEntity entity) {
-		if (entity.getSyncAction() == SyncAction.PUSH) {
-			doPush(entity);
-			if (publish) {
-				publishList.add(entity.getVfsPath());
+	/**
+	 * Syncs the entities of the sync list using a pool of worker threads, each worker using its own CMIS session.
+	 * Folders are synced first, level by level, so parent folders always exist before their children are synced.
+	 * After that all remaining entities are synced in parallel. The console output of each entity is written in the
+	 * order of the sync list, so the output of one entity is never mixed with the output of another entity.
+	 * @param numWorkers the number of worker threads (and CMIS sessions) to be used
+	 */
+	private void doParallelSync(int numWorkers) {
+		ExecutorService executor = createWorkerExecutor(numWorkers);
+
+		// group folders by depth, files and deletions are handled after all folders
+		SortedMap<Integer, List<SyncEntity>> foldersByDepth = new TreeMap<Integer, List<SyncEntity>>();
+		List<SyncEntity> otherEntities = new ArrayList<SyncEntity>(syncList.size());
+		for (SyncEntity entity : syncList) {
+			if (entity.isFolder() && !entity.getSyncAction().isDeleteAction()) {
+				int depth = StringUtils.countMatches(entity.getVfsPath(), '/');
+				List<SyncEntity> folders = foldersByDepth.get(depth);
+				if (folders == null) {
+					folders = new ArrayList<SyncEntity>();
+					foldersByDepth.put(depth, folders);
+				}
+				folders.add(entity);
+			}
+			else {
+				otherEntities.add(entity);
 			}
 		}
+
+		try {
+			for (List<SyncEntity> folders : foldersByDepth.values()) {
+				executeSyncBatch(executor, folders);
+			}
+			executeSyncBatch(executor, otherEntities);
+		}
+		catch (InterruptedException e) {
+			LOG.warn("The sync was interrupted", e);
+			console.error(ERROR_PREFIX + "The sync was interrupted");
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Submits a batch of sync entities to the executor and waits until all entities of the batch are synced. The
+	 * results are written to the console in the order of the batch, as soon as they are available.
+	 * @param executor    the executor running the sync workers
+	 * @param entities    the entities to be synced
+	 * @throws InterruptedException if the thread is interrupted while waiting for the workers
+	 */
+	private void executeSyncBatch(ExecutorService executor, List<SyncEntity> entities) throws InterruptedException {
+		List<Future<SyncEntityLog>> results = new ArrayList<Future<SyncEntityLog>>(entities.size());
+		for (SyncEntity entity : entities) {
+			results.add(submitSync(executor, entity));
+		}
+		for (int i = 0; i < results.size(); i++) {
+			awaitSyncResult(results.get(i), entities.get(i));
+		}
+	}
+
+	/**
+	 * Syncs the entities published to the sync pipeline while the analysis is still running, using a pool of worker
+	 * threads. Entities are synced in the order they are discovered by the analyzer, missing parent folders are
+	 * created by the VfsAdapter when needed. The console output is written in the order of the sync list. If the
+	 * analysis is canceled, no more entities are consumed, but the entities consumed so far are synced.
+	 * @return the entities consumed from the pipeline (all entities of the sync list unless the analysis was canceled)
+	 */
+	private List<SyncEntity> doPipelinedSync() {
+		int numWorkers = Math.max(1, config.getSyncWorkerCount());
+		ExecutorService executor = createWorkerExecutor(numWorkers);
+		List<SyncEntity> consumedEntities = new ArrayList<SyncEntity>();
+		LinkedList<SyncEntity> pendingEntities = new LinkedList<SyncEntity>();
+		LinkedList<Future<SyncEntityLog>> pendingResults = new LinkedList<Future<SyncEntityLog>>();
+
+		try {
+			SyncEntity entity;
+			while ((entity = syncPipeline.take()) != null) {
+				registerSyncEntity(entity);
+				consumedEntities.add(entity);
+				pendingEntities.add(entity);
+				pendingResults.add(submitSync(executor, entity));
+
+				// write the results that are already available
+				while (!pendingResults.isEmpty() && pendingResults.getFirst().isDone()) {
+					awaitSyncResult(pendingResults.removeFirst(), pendingEntities.removeFirst());
+				}
+			}
+			while (!pendingResults.isEmpty()) {
+				awaitSyncResult(pendingResults.removeFirst(), pendingEntities.removeFirst());
+			}
+		}
+		catch (InterruptedException e) {
+			LOG.warn("The sync was interrupted", e);
+			console.error(ERROR_PREFIX + "The sync was interrupted");
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			syncPipeline.close();
+			executor.shutdownNow();
+		}
+		return consumedEntities;
+	}
+
+	/**
+	 * Creates a sync list containing only the given entities, used if the pipelined analysis was canceled, so meta
+	 * data handling, publishing and export points are restricted to the entities that were actually synced
+	 * @param syncedEntities the entities consumed from the sync pipeline
+	 * @return the new sync list, with the flags of the current sync list and the modules of the synced entities
+	 */
+	private SyncList createSyncListForSyncedEntities(List<SyncEntity> syncedEntities) {
+		SyncList syncedList = new SyncList();
+		syncedList.setPullMetaDataOnly(syncList.isPullMetaDataOnly());
+		syncedList.setSyncModuleMetaData(syncList.isSyncModuleMetaData());
+		syncedList.addAll(syncedEntities);
+		for (OpenCmsModule ocmsModule : syncedModules) {
+			syncedList.addOcmsModule(ocmsModule);
+		}
+		return syncedList;
+	}
+
+	/**
+	 * Creates the executor running the sync workers
+	 * @param numWorkers the number of worker threads
+	 * @return the executor
+	 */
+	private static ExecutorService createWorkerExecutor(int numWorkers) {
+		return Executors.newFixedThreadPool(numWorkers, new ThreadFactory() {
+			private final AtomicInteger threadNumber = new AtomicInteger(1);
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "OpenCms sync worker " + threadNumber.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Submits a sync entity to the executor, the entity is synced using an adapter from the main adapter's worker pool.
+	 * The pool is retrieved for every entity, so a pool that was closed during the sync (e.g. because the connection
+	 * was lost) isn't used any longer.
+	 * @param executor    the executor running the sync workers
+	 * @param entity      the entity to be synced
+	 * @return the future result of the sync
+	 */
+	private Future<SyncEntityLog> submitSync(ExecutorService executor, final SyncEntity entity) {
+		return executor.submit(new Callable<SyncEntityLog>() {
+			public SyncEntityLog call() throws Exception {
+				SyncEntityLog entityLog = new SyncEntityLog(entity);
+				VfsAdapterPool adapterPool = adapter.getWorkerPool();
+				VfsAdapter workerAdapter = adapterPool.acquire();
+				try {
+					doSync(entity, workerAdapter, entityLog);
+				}
+				catch (RuntimeException e) {
+					LOG.warn("There was an Exception syncing " + entity.getVfsPath(), e);
+					entityLog.error(ERROR_PREFIX + "Sync of " + entity.getVfsPath() + " failed: " + e.getMessage());
+				}
+				finally {
+					adapterPool.release(workerAdapter);
+				}
+				return entityLog;
+			}
+		});
+	}
+
+	/**
+	 * Waits for the sync result of an entity and handles it
+	 * @param result the future result of the sync
+	 * @param entity the synced entity
+	 * @throws InterruptedException if the thread is interrupted while waiting for the result
+	 */
+	private void awaitSyncResult(Future<SyncEntityLog> result, SyncEntity entity) throws InterruptedException {
+		try {
+			handleSyncResult(result.get());
+		}
+		catch (ExecutionException e) {
+			LOG.warn("There was an Exception syncing " + entity.getVfsPath(), e.getCause());
+			console.error(ERROR_PREFIX + "Sync of " + entity.getVfsPath() + " failed: " + e.getCause().getMessage());
+		}
+	}
+
+	/**
+	 * Writes a summary of the synced entities to the console, used in pipelined sync mode where no confirmation
+	 * dialog is shown before the sync
+	 */
+	private void logSyncSummary() {
+		Map<SyncAction, Integer> numEntitiesByAction = new EnumMap<SyncAction, Integer>(SyncAction.class);
+		for (SyncEntity entity : syncList) {
+			Integer numEntities = numEntitiesByAction.get(entity.getSyncAction());
+			numEntitiesByAction.put(entity.getSyncAction(), numEntities == null ? 1 : numEntities + 1);
+		}
+		StringBuilder summary = new StringBuilder("Synced ").append(syncList.size()).append(" files or folders:");
+		for (Map.Entry<SyncAction, Integer> entry : numEntitiesByAction.entrySet()) {
+			summary.append(" ").append(entry.getKey().getDescription()).append(" ").append(entry.getValue()).append(",");
+		}
+		summary.setLength(summary.length() - 1);
+		console.info(summary.toString());
+	}
+
+	/**
+	 * Writes the log of a synced entity to the console and adds the entity to the publish list if necessary. Always
+	 * called from the SyncJob's thread, so the publish list needs no synchronization.
+	 * @param entityLog the log of the synced entity
+	 */
+	private void handleSyncResult(SyncEntityLog entityLog) {
+		entityLog.writeTo(console);
+		SyncEntity entity = entityLog.getEntity();
+		if (publish && (entity.getSyncAction() == SyncAction.PUSH || entity.getSyncAction() == SyncAction.DELETE_VFS)) {
+			publishList.add(entity.getVfsPath());
+		}
+	}
+
+	private void doSync(SyncEntity entity, VfsAdapter adapter, SyncEntityLog entityLog) {
+		if (entity.getSyncAction() == SyncAction.PUSH) {
+			doPush(entity, adapter, entityLog);
+		}
 		else if (entity.getSyncAction() == SyncAction.PULL) {
-			doPull(entity);
+			doPull(entity, adapter, entityLog);
 		}
 		else if (entity.getSyncAction() == SyncAction.DELETE_RFS) {
-			doDeleteFromRfs(entity);
+			doDeleteFromRfs(entity, entityLog);
 		}
 		else if (entity.getSyncAction() == SyncAction.DELETE_VFS) {
-			doDeleteFromVfs(entity);
-			if (publish) {
-				publishList.add(entity.getVfsPath());
-			}
+			doDeleteFromVfs(entity, adapter, entityLog);
+		}
+		if (!entityLog.hasErrors()) {
+			updateSyncBaseline(entity);
+		}
+	}
+
+	/**
+	 * Updates the module's sync baseline with the state of a successfully synced entity. The state is only recorded
+	 * if the transfer can be verified (see {@link #isTransferVerified(SyncEntity, File)}), otherwise the entity is
+	 * removed from the baseline, so it is analyzed again by the next sync.
+	 * @param entity the synced entity
+	 */
+	private void updateSyncBaseline(SyncEntity entity) {
+		SyncBaseline baseline = entity.getOcmsModule().getSyncBaseline();
+		CmisObject vfsObject = entity.getVfsObject();
+		File file = new File(entity.getRfsPath());
+		if (entity.getSyncAction().isDeleteAction() || !isTransferVerified(entity, file)) {
+			baseline.remove(entity.getVfsPath());
+			return;
+		}
+		String contentHash = entity.isFile() ? ContentDigestCache.getInstance().getDigest(file) : null;
+		baseline.record(entity.getVfsPath(), vfsObject.getId(), vfsObject.getLastModificationDate().getTimeInMillis(), file, contentHash);
+	}
+
+	/**
+	 * Checks if the local and the VFS state of a pushed or pulled entity match: both exist and, for files, the local
+	 * modification date was set to the VFS modification date (which is done after every successful push or pull)
+	 * @param entity the synced entity
+	 * @param file   the local file of the entity
+	 * @return <code>true</code> if the transfer was verified, <code>false</code> otherwise
+	 */
+	private static boolean isTransferVerified(SyncEntity entity, File file) {
+		CmisObject vfsObject = entity.getVfsObject();
+		if (vfsObject == null || vfsObject.getLastModificationDate() == null || !file.exists()) {
+			return false;
+		}
+		if (entity.isFolder()) {
+			return true;
 		}
+		// some file systems store modification dates with a precision of one second only
+		return Math.abs(file.lastModified() - vfsObject.getLastModificationDate().getTimeInMillis()) < 1000;
 	}
 
-	private void doPush(SyncEntity entity) {
+	private void doPush(SyncEntity entity, VfsAdapter adapter, SyncEntityLog entityLog) {
 
 		boolean success = false;
 		String errormessage = null;
 
 		if (entity.isFolder()) {
 			try {
-				adapter.createFolder(entity.getVfsPath());
+				entity.setVfsObject(adapter.createFolder(entity.getVfsPath(), folderCache));
 				success = true;
 			}
 			catch (Exception e) {
@@ -321,8 +646,14 @@ public class SyncJob implements Runnable {
 		}
 		else if (entity.isFile()) {
 			try {
-				adapter.pushFile(entity);
-				success = true;
+				Document vfsFile = adapter.pushFile(entity, folderCache);
+				if (vfsFile != null) {
+					entity.setVfsObject(vfsFile);
+					success = true;
+				}
+				else {
+					errormessage = entity.getVfsPath() + " could not be pushed (not connected or the local file was not found)";
+				}
 			}
 			catch (CmsPushException e) {
 				errormessage = e.getMessage();
@@ -335,26 +666,27 @@ public class SyncJob implements Runnable {
 			if (entity.replaceExistingEntity()) {
 				confirmation.append(" replacing an existing entity");
 			}
-			console.info(confirmation.toString());
+			entityLog.info(confirmation.toString());
 		}
 		else {
-			console.error("PUSH FAILED! " + errormessage);
+			entityLog.error("PUSH FAILED! " + errormessage);
 		}
 	}
 
-	private void doPull(SyncEntity entity) {
+	private void doPull(SyncEntity entity, VfsAdapter adapter, SyncEntityLog entityLog) {
 		StringBuilder confirmation = new StringBuilder();
 
 		if (entity.isFolder()) {
 			try {
 				FileUtils.forceMkdir(new File(entity.getRfsPath()));
 			} catch (IOException e) {
-				console.error("ERROR: couldn't create local directory " + entity.getRfsPath());
+				entityLog.error("ERROR: couldn't create local directory " + entity.getRfsPath());
 				LOG.warn("There was an Exception creating a local directory", e);
 		   }
 		}
-		else {
-			adapter.pullFile(entity);
+		else if (!adapter.pullFile(entity)) {
+			entityLog.error("PULL FAILED! " + entity.getVfsPath() + " could not be written to " + entity.getRfsPath());
+			return;
 		}
 
 		confirmation.append("PULL: ").append(entity.getVfsPath()).append(" pulled from VFS to ").append(entity.getOcmsModule().getLocalVfsRoot());
@@ -362,33 +694,33 @@ public class SyncJob implements Runnable {
 			confirmation.append(" replacing an existing entity");
 		}
 
-		console.info(confirmation.toString());
+		entityLog.info(confirmation.toString());
 	}
 
-	private void doDeleteFromRfs(SyncEntity entity) {
+	private void doDeleteFromRfs(SyncEntity entity, SyncEntityLog entityLog) {
 		StringBuilder confirmation = new StringBuilder("DELETE ").append(entity.getVfsPath()).append(" from ").append(entity.getOcmsModule().getLocalVfsRoot()).append(" (not in the VFS) - ");
 		File rfsFile = entity.getFile();
 		if (FileUtils.deleteQuietly(rfsFile)) {
 			confirmation.append(" SUCCESS");
-			console.info(confirmation.toString());
+			entityLog.info(confirmation.toString());
 		}
 		else {
 			confirmation.insert(0, "ERROR: ");
 			confirmation.append(" FAILED!");
-			console.error(confirmation.toString());
+			entityLog.error(confirmation.toString());
 		}
 	}
 
-	private void doDeleteFromVfs(SyncEntity entity) {
+	private void doDeleteFromVfs(SyncEntity entity, VfsAdapter adapter, SyncEntityLog entityLog) {
 		StringBuilder confirmation = new StringBuilder("DELETE ").append(entity.getVfsPath()).append(" (not in the RFS) - ");
 		if (adapter.deleteResource(entity.getVfsPath())) {
 			confirmation.append(" SUCCESS");
-			console.info(confirmation.toString());
+			entityLog.info(confirmation.toString());
 		}
 		else {
 			confirmation.insert(0, "ERROR: ");
 			confirmation.append(" FAILED!");
-			console.error(confirmation.toString());
+			entityLog.error(confirmation.toString());
 		}
 	}
 
@@ -656,4 +988,48 @@ public class SyncJob implements Runnable {
 		}
 	}
 
+	/**
+	 * Collects the console output for one synced entity, so the output can be written to the console in the order of
+	 * the sync list even if entities are synced in parallel.
+	 */
+	private static class SyncEntityLog {
+
+		private SyncEntity entity;
+		private List<String> messages = new ArrayList<String>(2);
+		private List<Boolean> errorFlags = new ArrayList<Boolean>(2);
+
+		SyncEntityLog(SyncEntity entity) {
+			this.entity = entity;
+		}
+
+		SyncEntity getEntity() {
+			return entity;
+		}
+
+		void info(String message) {
+			messages.add(message);
+			errorFlags.add(Boolean.FALSE);
+		}
+
+		void error(String message) {
+			messages.add(message);
+			errorFlags.add(Boolean.TRUE);
+		}
+
+		boolean hasErrors() {
+			return errorFlags.contains(Boolean.TRUE);
+		}
+
+		void writeTo(OpenCmsToolWindowConsole console) {
+			for (int i = 0; i < messages.size(); i++) {
+				if (errorFlags.get(i)) {
+					console.error(messages.get(i));
+				}
+				else {
+					console.info(messages.get(i));
+				}
+			}
+		}
+	}
+
 }
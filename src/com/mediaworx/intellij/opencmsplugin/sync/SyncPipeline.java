@@ -0,0 +1,136 @@
+/*
+ * This file is part of the OpenCms plugin for IntelliJ by mediaworx.
+ *
+ * For further information about the OpenCms plugin for IntelliJ, please
+ * see the project website at GitHub:
+ * https://github.com/mediaworx/opencms-intellijplugin
+ *
+ * Copyright (C) 2007-2016 mediaworx berlin AG (http://www.mediaworx.com)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+
+package com.mediaworx.intellij.opencmsplugin.sync;
+
+import com.mediaworx.intellij.opencmsplugin.entities.SyncEntity;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded queue connecting the SyncFileAnalyzer and the SyncJob in pipelined sync mode. The analyzer publishes sync
+ * entities as soon as it discovers them, the SyncJob consumes and syncs them while the analysis is still running. If
+ * the queue is full, the analyzer waits until the SyncJob has caught up.
+ */
+class SyncPipeline {
+
+	/** default number of entities the queue can hold */
+	static final int DEFAULT_CAPACITY = 500;
+
+	/** time (in milliseconds) to wait for the queue before the pipeline state is checked again */
+	private static final long POLL_TIMEOUT = 100;
+
+	private BlockingQueue<SyncEntity> queue;
+
+	/** set by the analyzer after the last entity was published */
+	private volatile boolean finished;
+
+	/** set by the analyzer if the analysis was canceled */
+	private volatile boolean canceled;
+
+	/** set by the SyncJob if it doesn't consume any more entities */
+	private volatile boolean closed;
+
+	SyncPipeline() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	SyncPipeline(int capacity) {
+		queue = new ArrayBlockingQueue<SyncEntity>(capacity);
+	}
+
+	/**
+	 * Publishes an entity to be synced, waits if the queue is full
+	 * @param entity the entity to be synced
+	 * @return <code>true</code> if the entity was published, <code>false</code> if the pipeline was closed by the
+	 *         consumer or the publishing thread was interrupted
+	 */
+	boolean publish(SyncEntity entity) {
+		try {
+			while (!closed) {
+				if (queue.offer(entity, POLL_TIMEOUT, TimeUnit.MILLISECONDS)) {
+					return true;
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return false;
+	}
+
+	/**
+	 * Marks the end of the analysis, all entities have been published
+	 */
+	void finish() {
+		finished = true;
+	}
+
+	/**
+	 * Marks the analysis as canceled, entities that were not consumed yet are discarded
+	 */
+	void cancel() {
+		canceled = true;
+		queue.clear();
+	}
+
+	/**
+	 * Called by the consumer if it stops consuming entities, so the analyzer doesn't wait for free space forever
+	 */
+	void close() {
+		closed = true;
+		queue.clear();
+	}
+
+	/**
+	 * Takes the next entity to be synced, waits until an entity is available or the analysis is finished
+	 * @return the next entity, <code>null</code> if the analysis is finished and all entities were consumed or if the
+	 *         analysis was canceled
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	SyncEntity take() throws InterruptedException {
+		while (!canceled) {
+			// read the finished flag before polling, so no entity published before finishing can be missed
+			boolean analysisFinished = finished;
+			SyncEntity entity = queue.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+			if (entity != null) {
+				return entity;
+			}
+			if (analysisFinished && queue.isEmpty()) {
+				return null;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return <code>true</code> if the analysis was canceled, <code>false</code> otherwise
+	 */
+	boolean isCanceled() {
+		return canceled;
+	}
+}
@@ -24,12 +24,14 @@
 
 package com.mediaworx.intellij.opencmsplugin.sync;
 
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.ui.Messages;
 import com.mediaworx.intellij.opencmsplugin.entities.SyncEntity;
 import com.mediaworx.intellij.opencmsplugin.exceptions.CmsConnectionException;
 import com.mediaworx.intellij.opencmsplugin.exceptions.CmsPermissionDeniedException;
 import com.mediaworx.intellij.opencmsplugin.exceptions.CmsPushException;
+import com.mediaworx.intellij.opencmsplugin.tools.PluginScheduler;
 import com.mediaworx.intellij.opencmsplugin.tools.PluginTools;
 import org.apache.chemistry.opencmis.client.api.*;
 import org.apache.chemistry.opencmis.client.runtime.SessionFactoryImpl;
@@ -40,6 +42,8 @@ import org.apache.chemistry.opencmis.commons.data.RepositoryCapabilities;
 import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
 import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
 import org.apache.chemistry.opencmis.commons.enums.BindingType;
+import org.apache.chemistry.opencmis.commons.enums.CapabilityQuery;
+import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
 import org.apache.chemistry.opencmis.commons.enums.UnfileObject;
 import org.apache.chemistry.opencmis.commons.enums.VersioningState;
 import org.apache.chemistry.opencmis.commons.exceptions.*;
@@ -47,9 +51,18 @@ import org.apache.commons.io.FileUtils;
 
 import javax.activation.MimetypesFileTypeMap;
 import java.io.*;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.*;
+import java.util.concurrent.ScheduledFuture;
 
 /**
  * Adapter used to sync the RFS with the OpenCms VFS. Doesn't handle properties, siblings or content types.
@@ -59,11 +72,84 @@ public class VfsAdapter {
 
 	private static final Logger LOG = Logger.getInstance(VfsAdapter.class);
 
+	/** default number of children retrieved per page when listing folder contents */
+	public static final int DEFAULT_CHILDREN_PAGE_SIZE = 1000;
+
+	/** time (in milliseconds) a successful CMIS call is trusted as proof that the connection is alive */
+	private static final long LIVENESS_TTL = 60000;
+
+	/** interval (in milliseconds) in which the heartbeat checks the connection state */
+	private static final long HEARTBEAT_INTERVAL = 5000;
+
+	/** delay (in milliseconds) before the first reconnect attempt after the connection was lost */
+	private static final long MIN_RECONNECT_DELAY = 5000;
+
+	/** maximum delay (in milliseconds) between two reconnect attempts */
+	private static final long MAX_RECONNECT_DELAY = 300000;
+
+	/** maximum number of bytes transferred with one <code>FileChannel.transferFrom</code> call when pulling files */
+	private static final long PULL_TRANSFER_CHUNK_SIZE = 8 * 1024 * 1024;
+
+	/** suffix of the temporary files pulled content is written to before they are moved into place */
+	private static final String PULL_TEMP_FILE_SUFFIX = ".ocmspull";
+
+	/**
+	 * Named operation context profiles. Each profile only requests the properties needed for the respective kind of
+	 * CMIS call, without allowable actions, ACLs, policies, relationships or renditions.
+	 */
+	public enum ContextProfile {
+
+		/** used for lookups and folder listings during the sync analysis */
+		ANALYSIS(PropertyIds.NAME, PropertyIds.BASE_TYPE_ID, PropertyIds.OBJECT_TYPE_ID, PropertyIds.OBJECT_ID,
+				PropertyIds.LAST_MODIFICATION_DATE, PropertyIds.CONTENT_STREAM_LENGTH, PropertyIds.PATH,
+				PropertyIds.CHANGE_TOKEN),
+
+		/** used to retrieve and create folders and documents when pushing */
+		PUSH(PropertyIds.NAME, PropertyIds.BASE_TYPE_ID, PropertyIds.OBJECT_TYPE_ID, PropertyIds.OBJECT_ID,
+				PropertyIds.LAST_MODIFICATION_DATE, PropertyIds.PATH, PropertyIds.CHANGE_TOKEN),
+
+		/** used to retrieve documents when pulling */
+		PULL(PropertyIds.NAME, PropertyIds.BASE_TYPE_ID, PropertyIds.OBJECT_TYPE_ID, PropertyIds.OBJECT_ID,
+				PropertyIds.LAST_MODIFICATION_DATE, PropertyIds.CONTENT_STREAM_LENGTH,
+				PropertyIds.CONTENT_STREAM_MIME_TYPE);
+
+		private final Set<String> propertyFilter;
+
+		ContextProfile(String... properties) {
+			propertyFilter = new HashSet<String>(Arrays.asList(properties));
+		}
+
+		/**
+		 * @return the properties requested with this profile
+		 */
+		public Set<String> getPropertyFilter() {
+			return propertyFilter;
+		}
+	}
+
 	/** the CMIS session */
 	private Session session;
 
 	/** boolean flag denoting if the adapter is connected */
-	private boolean connected;
+	private volatile boolean connected;
+
+	/** time of the last successful CMIS call (in milliseconds) */
+	private volatile long lastSuccessfulCall;
+
+	/** boolean flag denoting if a session was requested at least once, the heartbeat only reconnects if it was */
+	private volatile boolean sessionRequested;
+
+	/** current delay between two reconnect attempts, doubled after every failed attempt */
+	private long reconnectDelay = MIN_RECONNECT_DELAY;
+
+	/** time of the next reconnect attempt (in milliseconds) */
+	private long nextReconnectAttempt;
+
+	/** executor running the heartbeat, <code>null</code> if the heartbeat isn't running */
+	private ScheduledFuture<?> heartbeatFuture;
+
+	/** operation context used by the heartbeat, only requests the object id and bypasses the session cache */
+	private OperationContext heartbeatContext;
 
 	/** repository URL, for OpenCms CMIS usually "http://localhost:8080/opencms/cmisatom/cmis-offline/" */
 	private String atompubUrl;
@@ -74,6 +160,30 @@ public class VfsAdapter {
 	/** the OpenCms user's password */
 	private String password;
 
+	/** cached capability flag denoting if the repository supports getDescendants, <code>null</code> if not read yet */
+	private Boolean getDescendantsSupported;
+
+	/** number of children retrieved per page when listing folder contents */
+	private int childrenPageSize = DEFAULT_CHILDREN_PAGE_SIZE;
+
+	/** flag denoting if pulled files are forced to disk before they are moved into place */
+	private boolean pullFsyncEnabled;
+
+	/** the operation contexts for all profiles, created when the session is started */
+	private Map<ContextProfile, OperationContext> operationContexts;
+
+	/** operation contexts for all profiles that bypass the session cache, created when the session is started */
+	private Map<ContextProfile, OperationContext> uncachedOperationContexts;
+
+	/**
+	 * the adapter that created this adapter if this is a sync worker's adapter (see {@link #createWorkerAdapter()}),
+	 * <code>null</code> otherwise
+	 */
+	private VfsAdapter mainAdapter;
+
+	/** pool of worker adapters used for parallel syncs, <code>null</code> if no parallel sync was run yet */
+	private VfsAdapterPool workerPool;
+
 	/**
 	 * creates a new VfsAdapter that may be connected by calling {@link #startSession()}
 	 * @param atompubUrl repository URL, for OpenCms CMIS usually "http://localhost:8080/opencms/cmisatom/cmis-offline/"
@@ -97,6 +207,80 @@ public class VfsAdapter {
 		this.password = password;
 	}
 
+	/**
+	 * creates a new VfsAdapter for the same repository and credentials as this adapter. The new adapter uses its own
+	 * CMIS session that has to be started by calling {@link #startSession()}.
+	 * @return a new, unconnected VfsAdapter
+	 */
+	public VfsAdapter createWorkerAdapter() {
+		VfsAdapter workerAdapter = new VfsAdapter(atompubUrl, user, password);
+		workerAdapter.setChildrenPageSize(childrenPageSize);
+		workerAdapter.setPullFsyncEnabled(pullFsyncEnabled);
+		workerAdapter.mainAdapter = this;
+		return workerAdapter;
+	}
+
+	/**
+	 * returns the pool of worker adapters used for parallel syncs. The pool is kept until the session is restarted or
+	 * lost, so worker sessions are reused by subsequent syncs.
+	 * @return the worker pool
+	 */
+	synchronized VfsAdapterPool getWorkerPool() {
+		if (workerPool == null) {
+			workerPool = new VfsAdapterPool(this);
+		}
+		return workerPool;
+	}
+
+	/**
+	 * closes the pool of worker adapters and the worker sessions. A new pool is created when the next parallel sync is
+	 * run.
+	 */
+	public synchronized void closeWorkerPool() {
+		if (workerPool != null) {
+			workerPool.close();
+			workerPool = null;
+		}
+	}
+
+	/**
+	 * ends the CMIS session, used to close worker sessions. The adapter may be reconnected by calling
+	 * {@link #startSession()}.
+	 */
+	synchronized void endSession() {
+		sessionRequested = false;
+		connected = false;
+		if (session != null) {
+			session.clear();
+			session = null;
+		}
+	}
+
+	/**
+	 * stops the heartbeat and closes all worker sessions, called when the plugin is disposed
+	 */
+	public void dispose() {
+		stopHeartbeat();
+		closeWorkerPool();
+	}
+
+	/**
+	 * sets the number of children retrieved per page when listing folder contents, takes effect when the next session
+	 * is started
+	 * @param childrenPageSize the page size, values below 1 reset the page size to the default
+	 */
+	public void setChildrenPageSize(int childrenPageSize) {
+		this.childrenPageSize = childrenPageSize > 0 ? childrenPageSize : DEFAULT_CHILDREN_PAGE_SIZE;
+	}
+
+	/**
+	 * sets the flag denoting if pulled files are forced to disk (fsync) before they are moved into place
+	 * @param pullFsyncEnabled <code>true</code> if pulled files should be synced to disk, <code>false</code> otherwise
+	 */
+	public void setPullFsyncEnabled(boolean pullFsyncEnabled) {
+		this.pullFsyncEnabled = pullFsyncEnabled;
+	}
+
 	public void setUser(String user) {
 		this.user = user;
 	}
@@ -108,7 +292,12 @@ public class VfsAdapter {
 	/**
 	 * starts the CMIS session that is used to push or pull files/folders
 	 */
-	public void startSession() throws CmsConnectionException {
+	public synchronized void startSession() throws CmsConnectionException {
+
+		sessionRequested = true;
+
+		// worker sessions were started with the previous session's credentials
+		closeWorkerPool();
 
 	    if (password != null && password.length() > 0) {
 
@@ -139,9 +328,12 @@ public class VfsAdapter {
 
 			    LOG.info("Starting CMIS session using repository " + atompubUrl);
 			    this.session = sessionFactory.createSession(sessionParams);
+			    getDescendantsSupported = null;
+			    createOperationContexts();
 
 			    if (this.session != null) {
 				    connected = true;
+				    markAlive();
 			    }
 			    else {
 				    connected = false;
@@ -156,6 +348,156 @@ public class VfsAdapter {
 		}
 	}
 
+	/**
+	 * creates the operation contexts for all profiles using the current session
+	 */
+	private void createOperationContexts() {
+		operationContexts = new EnumMap<ContextProfile, OperationContext>(ContextProfile.class);
+		uncachedOperationContexts = new EnumMap<ContextProfile, OperationContext>(ContextProfile.class);
+		if (session == null) {
+			return;
+		}
+		for (ContextProfile profile : ContextProfile.values()) {
+			OperationContext context = session.createOperationContext(profile.getPropertyFilter(), false, false, false,
+					IncludeRelationships.NONE, Collections.singleton("cmis:none"), false, null, true, childrenPageSize);
+			operationContexts.put(profile, context);
+			OperationContext uncachedContext = session.createOperationContext(profile.getPropertyFilter(), false, false,
+					false, IncludeRelationships.NONE, Collections.singleton("cmis:none"), false, null, false, childrenPageSize);
+			uncachedOperationContexts.put(profile, uncachedContext);
+		}
+		heartbeatContext = session.createOperationContext(Collections.singleton(PropertyIds.OBJECT_ID), false, false,
+				false, IncludeRelationships.NONE, Collections.singleton("cmis:none"), false, null, false, 1);
+	}
+
+	/**
+	 * records a successful CMIS call, the connection is considered alive for {@link #LIVENESS_TTL} milliseconds. Calls
+	 * of sync workers are recorded for the main adapter as well, so its heartbeat doesn't ping during a parallel sync.
+	 */
+	private void markAlive() {
+		long now = System.currentTimeMillis();
+		lastSuccessfulCall = now;
+		if (mainAdapter != null) {
+			mainAdapter.lastSuccessfulCall = now;
+		}
+	}
+
+	/**
+	 * starts a background heartbeat that pings the repository if no successful CMIS call was made within the liveness
+	 * TTL and that reconnects with exponential backoff after the connection was lost. Calling this method while the
+	 * heartbeat is running has no effect.
+	 */
+	public synchronized void startHeartbeat() {
+		if (heartbeatFuture != null) {
+			return;
+		}
+		heartbeatFuture = PluginScheduler.getInstance().scheduleWithFixedDelay(PluginScheduler.Pool.CMIS, new Runnable() {
+			@Override
+			public void run() {
+				try {
+					heartbeat();
+				}
+				catch (RuntimeException e) {
+					// never let an exception cancel the heartbeat
+					LOG.warn("Error in CMIS heartbeat", e);
+				}
+			}
+		}, HEARTBEAT_INTERVAL);
+	}
+
+	/**
+	 * stops the background heartbeat
+	 */
+	public synchronized void stopHeartbeat() {
+		if (heartbeatFuture != null) {
+			heartbeatFuture.cancel(false);
+			heartbeatFuture = null;
+		}
+	}
+
+	/**
+	 * one heartbeat tick: pings the repository if the connection has been idle for longer than the liveness TTL or
+	 * tries to reconnect if the connection was lost and the backoff delay has passed
+	 */
+	private void heartbeat() {
+		long now = System.currentTimeMillis();
+		if (connected) {
+			if (now - lastSuccessfulCall >= LIVENESS_TTL && !ping()) {
+				LOG.info("CMIS heartbeat failed, connection lost");
+				connected = false;
+				closeWorkerPool();
+				reconnectDelay = MIN_RECONNECT_DELAY;
+				nextReconnectAttempt = now + reconnectDelay;
+			}
+		}
+		else if (sessionRequested && now >= nextReconnectAttempt) {
+			try {
+				startSession();
+				if (connected) {
+					LOG.info("CMIS session reconnected");
+					reconnectDelay = MIN_RECONNECT_DELAY;
+					return;
+				}
+			}
+			catch (CmsConnectionException e) {
+				// reconnect failed, try again later
+			}
+			reconnectDelay = Math.min(reconnectDelay * 2, MAX_RECONNECT_DELAY);
+			nextReconnectAttempt = System.currentTimeMillis() + reconnectDelay;
+			LOG.info("CMIS reconnect failed, next attempt in " + (reconnectDelay / 1000) + " seconds");
+		}
+	}
+
+	/**
+	 * reads the repository's root folder (object id only, uncached) to check if the connection is alive
+	 * @return  <code>true</code> if the root folder could be read, <code>false</code> otherwise
+	 */
+	private boolean ping() {
+		Session currentSession = session;
+		if (currentSession == null) {
+			return false;
+		}
+		try {
+			OperationContext context = heartbeatContext != null ? heartbeatContext : currentSession.getDefaultContext();
+			if (currentSession.getRootFolder(context) != null) {
+				markAlive();
+				return true;
+			}
+		}
+		catch (CmisConnectionException e) {
+			LOG.info("Can't read CMIS repository root folder, not connected", e);
+		}
+		catch (CmisObjectNotFoundException e) {
+			LOG.info("Can't read CMIS repository root folder, not connected", e);
+		}
+		catch (CmisPermissionDeniedException e) {
+			LOG.info("CMIS says permission denied, not connected", e);
+		}
+		return false;
+	}
+
+	/**
+	 * returns the operation context for the given profile, to be used for CMIS calls on objects retrieved by this
+	 * adapter (e.g. <code>Folder.getChildren(OperationContext)</code>)
+	 * @param profile the operation context profile
+	 * @return  the profile's operation context
+	 */
+	public OperationContext getOperationContext(ContextProfile profile) {
+		return getOperationContext(profile, true);
+	}
+
+	/**
+	 * returns the operation context for the given profile
+	 * @param profile      the operation context profile
+	 * @param cacheEnabled <code>true</code> if the context may use the session cache, <code>false</code> if objects
+	 *                     have to be read from the repository
+	 * @return  the profile's operation context
+	 */
+	public OperationContext getOperationContext(ContextProfile profile, boolean cacheEnabled) {
+		Map<ContextProfile, OperationContext> contexts = cacheEnabled ? operationContexts : uncachedOperationContexts;
+		OperationContext context = contexts != null ? contexts.get(profile) : null;
+		return context != null ? context : session.getDefaultContext();
+	}
+
 	/**
 	 * checks if a VFS resource exists at the given path
 	 * @param path  the path to be checked (full root path, e.g.
@@ -171,39 +513,139 @@ public class VfsAdapter {
 			return false;
 		}
 	    try {
-	        session.getObjectByPath(path);
+	        session.getObjectByPath(path, getOperationContext(ContextProfile.ANALYSIS));
+		    markAlive();
 	        return true;
 	    }
 	    catch (CmisObjectNotFoundException e) {
+		    markAlive();
 	        return false;
 	    }
 	}
 
 	/**
-	 * retrieves (pulls) the VFS resource at the given path
+	 * checks which of the given VFS paths exist. Paths are grouped by their parent folder, the children of each
+	 * parent folder are listed once (a parent folder with only one path to check is handled with a single lookup
+	 * instead), so checking many resources in few folders needs only a few CMIS calls.
+	 * @param paths the paths to be checked (full root paths)
+	 * @return  the paths that exist in the VFS
+	 */
+	public Set<String> getExistingPaths(Collection<String> paths) {
+		Set<String> existingPaths = new HashSet<String>();
+		if (!connected) {
+			LOG.warn("not connected");
+			return existingPaths;
+		}
+
+		Map<String, List<String>> pathsByParent = new LinkedHashMap<String, List<String>>();
+		for (String path : paths) {
+			if (path == null || !path.startsWith("/") || path.length() == 1) {
+				continue;
+			}
+			String parentPath = path.substring(0, path.lastIndexOf('/'));
+			if (parentPath.length() == 0) {
+				parentPath = "/";
+			}
+			List<String> parentPaths = pathsByParent.get(parentPath);
+			if (parentPaths == null) {
+				parentPaths = new ArrayList<String>();
+				pathsByParent.put(parentPath, parentPaths);
+			}
+			parentPaths.add(path);
+		}
+
+		OperationContext context = getOperationContext(ContextProfile.ANALYSIS);
+		for (Map.Entry<String, List<String>> entry : pathsByParent.entrySet()) {
+			List<String> childPaths = entry.getValue();
+			if (childPaths.size() == 1) {
+				if (exists(childPaths.get(0))) {
+					existingPaths.add(childPaths.get(0));
+				}
+				continue;
+			}
+			CmisObject parent;
+			try {
+				parent = session.getObjectByPath(entry.getKey(), context);
+			}
+			catch (CmisObjectNotFoundException e) {
+				markAlive();
+				continue;
+			}
+			if (!(parent instanceof Folder)) {
+				continue;
+			}
+			Set<String> childNames = new HashSet<String>();
+			for (CmisObject child : ((Folder)parent).getChildren(context)) {
+				childNames.add(child.getName());
+			}
+			markAlive();
+			for (String childPath : childPaths) {
+				if (childNames.contains(childPath.substring(childPath.lastIndexOf('/') + 1))) {
+					existingPaths.add(childPath);
+				}
+			}
+		}
+		return existingPaths;
+	}
+
+	/**
+	 * retrieves (pulls) the VFS resource at the given path using the analysis profile
 	 * @param path  path of the resource to be pulled
 	 * @return  the VFS resource
 	 * @throws CmsPermissionDeniedException
 	 */
 	public CmisObject getVfsObject(String path) throws CmsPermissionDeniedException {
+		return getVfsObject(path, ContextProfile.ANALYSIS);
+	}
+
+	/**
+	 * retrieves (pulls) the VFS resource at the given path
+	 * @param path     path of the resource to be pulled
+	 * @param profile  the operation context profile defining which properties are retrieved
+	 * @return  the VFS resource
+	 * @throws CmsPermissionDeniedException
+	 */
+	public CmisObject getVfsObject(String path, ContextProfile profile) throws CmsPermissionDeniedException {
+		return getVfsObject(path, profile, true);
+	}
+
+	/**
+	 * retrieves (pulls) the VFS resource at the given path
+	 * @param path         path of the resource to be pulled
+	 * @param profile      the operation context profile defining which properties are retrieved
+	 * @param cacheEnabled <code>true</code> if the resource may be taken from the session cache, <code>false</code> if
+	 *                     it has to be read from the repository
+	 * @return  the VFS resource
+	 * @throws CmsPermissionDeniedException
+	 */
+	public CmisObject getVfsObject(String path, ContextProfile profile, boolean cacheEnabled) throws CmsPermissionDeniedException {
 	    if (!connected) {
 		    LOG.warn("not connected");
 		    return null;
 	    }
 		path = PluginTools.ensureUnixPath(path);
 	    try {
-	        return session.getObjectByPath(path);
+		    CmisObject vfsObject = session.getObjectByPath(path, getOperationContext(profile, cacheEnabled));
+		    markAlive();
+		    return vfsObject;
 	    }
 	    catch (CmisObjectNotFoundException e) {
+		    markAlive();
 	        return null;
 	    }
 	    catch (CmisPermissionDeniedException e) {
 		    LOG.warn("Permission denied, can't access "+path, e);
 		    throw new CmsPermissionDeniedException("Permission denied, can't access "+path, e);
 	    }
-		catch (CmisConnectionException e) {
-			Messages.showDialog("Error connecting to the VFS" + e.getMessage() + "\nIs OpenCms running?",
-					"Error", new String[]{"Ok"}, 0, Messages.getErrorIcon());
+		catch (final CmisConnectionException e) {
+			// VFS objects are retrieved on background threads as well, dialogs may only be shown on the EDT
+			ApplicationManager.getApplication().invokeLater(new Runnable() {
+				@Override
+				public void run() {
+					Messages.showDialog("Error connecting to the VFS" + e.getMessage() + "\nIs OpenCms running?",
+							"Error", new String[]{"Ok"}, 0, Messages.getErrorIcon());
+				}
+			});
 			LOG.warn("Error connecting to the VFS", e);
 			connected = false;
 			return null;
@@ -211,42 +653,97 @@ public class VfsAdapter {
 	}
 
 	/**
-	 * retrieves a VFS folder, creating it if it doesn't exist
-	 * @param path  the path of the folder to be retrieved
-	 * @return  the VFS folder (may be newly created)
+	 * retrieves the id of a VFS folder, creating the folder and all missing ancestors if it doesn't exist. Starting at
+	 * the folder, the ancestors are looked up until an existing folder is found, then the missing folders are created
+	 * top-down. Folders found in the cache aren't looked up again, all retrieved or created folders are added to the
+	 * cache. Only ids are used, so the cache may contain folders retrieved by another adapter's session.
+	 * @param path         the path of the folder to be retrieved
+	 * @param folderCache  cache for folders retrieved or created during the current sync run, may be <code>null</code>
+	 * @return  the id of the VFS folder (may be newly created), <code>null</code> if not connected
 	 */
-	private Folder getOrCreateFolder(String path) {
+	private String getOrCreateFolderId(String path, VfsFolderCache folderCache) {
 	    if (!connected) {
 		    LOG.warn("not connected");
 		    return null;
 	    }
+		if (folderCache == null) {
+			folderCache = new VfsFolderCache();
+		}
+		path = VfsFolderCache.normalizePath(PluginTools.ensureUnixPath(path));
 
-	    // check if the folder exists
-	    try {
-	        return (Folder)session.getObjectByPath(path);
-	    }
-	    // if the folder does not exist, create it
-	    catch (CmisObjectNotFoundException e) {
-	        String parentPath = path.substring(0, path.lastIndexOf("/"));
-	        String foldername = path.substring(path.lastIndexOf("/") + 1, path.length());
-	        LOG.info("creating folder "+path);
-	        LOG.info("parent path "+parentPath);
-	        LOG.info("foldername "+foldername);
+		String folderId = folderCache.get(path);
+		if (folderId != null) {
+			return folderId;
+		}
 
-	        Folder parent;
+	    OperationContext context = getOperationContext(ContextProfile.PUSH);
 
-	        try {
-	            parent = (Folder)session.getObjectByPath(parentPath);
-	        }
-	        catch (CmisObjectNotFoundException e2) {
-	            parent = getOrCreateFolder(parentPath);
-	        }
+		// walk up the tree until an existing folder is found, remembering the missing folders
+		LinkedList<String> missingPaths = new LinkedList<String>();
+		String currentPath = path;
+		while (folderId == null) {
+			folderId = folderCache.get(currentPath);
+			if (folderId != null) {
+				break;
+			}
+			try {
+				folderId = session.getObjectByPath(currentPath, context).getId();
+				folderCache.put(currentPath, folderId);
+			}
+			catch (CmisObjectNotFoundException e) {
+				if ("/".equals(currentPath)) {
+					throw e;
+				}
+				missingPaths.addFirst(currentPath);
+				currentPath = VfsFolderCache.normalizePath(currentPath.substring(0, currentPath.lastIndexOf("/")));
+			}
+		}
+		markAlive();
 
-	        Map<String, String> newFolderProps = new HashMap<String, String>();
-	        newFolderProps.put(PropertyIds.OBJECT_TYPE_ID, BaseTypeId.CMIS_FOLDER.value());
-	        newFolderProps.put(PropertyIds.NAME, foldername);
-	        return parent.createFolder(newFolderProps);
-	    }
+		// create the missing folders top-down
+		for (String missingPath : missingPaths) {
+			folderId = createChildFolder(folderId, missingPath, context);
+			folderCache.put(missingPath, folderId);
+		}
+		return folderId;
+	}
+
+	/**
+	 * creates a folder below the given parent folder
+	 * @param parentId the id of the parent folder
+	 * @param path     the path of the folder to be created
+	 * @param context  the operation context used to look up the folder if it was created by someone else
+	 * @return  the id of the newly created folder (or of the existing folder if it was created by someone else in the
+	 *          meantime)
+	 */
+	private String createChildFolder(String parentId, String path, OperationContext context) {
+		String foldername = path.substring(path.lastIndexOf("/") + 1, path.length());
+		LOG.info("creating folder "+path);
+
+		Map<String, String> newFolderProps = new HashMap<String, String>();
+		newFolderProps.put(PropertyIds.OBJECT_TYPE_ID, BaseTypeId.CMIS_FOLDER.value());
+		newFolderProps.put(PropertyIds.NAME, foldername);
+		try {
+			return session.createFolder(newFolderProps, session.createObjectId(parentId)).getId();
+		}
+		// another sync worker may have created the folder in the meantime
+		catch (CmisContentAlreadyExistsException e) {
+			return session.getObjectByPath(path, context).getId();
+		}
+	}
+
+	/**
+	 * retrieves a VFS folder using this adapter's session, creating it and all missing ancestors if it doesn't exist
+	 * @param path         the path of the folder to be retrieved
+	 * @param folderCache  cache for folders retrieved or created during the current sync run, may be <code>null</code>
+	 * @return  the VFS folder (may be newly created), <code>null</code> if not connected
+	 */
+	private Folder getOrCreateFolder(String path, VfsFolderCache folderCache) {
+		String folderId = getOrCreateFolderId(path, folderCache);
+		if (folderId == null) {
+			return null;
+		}
+		return (Folder)session.getObject(folderId, getOperationContext(ContextProfile.PUSH));
 	}
 
 	/**
@@ -256,7 +753,19 @@ public class VfsAdapter {
 	 * @return  the newly created folder (or the folder that existed previously)
 	 */
 	public Folder createFolder(String path) {
-		return getOrCreateFolder(path);
+		return getOrCreateFolder(path, null);
+	}
+
+	/**
+	 * creates a folder in the VFS and returns it. If the folder already exists, the existing folder is returned.
+	 * Folders already contained in the given cache aren't looked up again.
+	 * @param path         the folder's VFS path (full root path, e.g.
+	 *                     <code>/system/modules/com.mycompany.mymodule/classes</code>)
+	 * @param folderCache  cache for folders retrieved or created during the current sync run
+	 * @return  the newly created folder (or the folder that existed previously)
+	 */
+	public Folder createFolder(String path, VfsFolderCache folderCache) {
+		return getOrCreateFolder(path, folderCache);
 	}
 
 	/**
@@ -266,6 +775,17 @@ public class VfsAdapter {
 	 * @throws CmsPushException
 	 */
 	public Document pushFile(SyncEntity entity) throws CmsPushException {
+		return pushFile(entity, null);
+	}
+
+	/**
+	 * pushes a file from the RFS to the VFS, resolving the parent folder from the given folder cache if possible
+	 * @param entity       the sync entity representing the file to be pushed
+	 * @param folderCache  cache for folders retrieved or created during the current sync run, may be <code>null</code>
+	 * @return  a CMIS document of the newly created VFS file
+	 * @throws CmsPushException
+	 */
+	public Document pushFile(SyncEntity entity, VfsFolderCache folderCache) throws CmsPushException {
 		if (!connected) {
 			LOG.info("not connected");
 			return null;
@@ -286,20 +806,22 @@ public class VfsAdapter {
 			// if the file already exists in the VFS ...
 			if (entity.replaceExistingEntity()) {
 				// ... update its content
-				vfsFile = (Document)entity.getVfsObject();
+				vfsFile = getDocumentForUpdate(entity);
 				vfsFile.setContentStream(contentStream, true, true);
 			}
 			// if the file doesn't exist in the VFS
 			else {
-				// ... get the parent folder object from the VFS
+				// ... get the parent folder id from the VFS
 				String parentPath = entity.getVfsPath().substring(0, entity.getVfsPath().lastIndexOf("/"));
-				Folder parent = getOrCreateFolder(parentPath);
+				String parentId = getOrCreateFolderId(parentPath, folderCache);
 
 				// ... and create the file as Document Object under the parent folder
 				Map<String, Object> properties = new HashMap<String, Object>();
 				properties.put(PropertyIds.OBJECT_TYPE_ID, BaseTypeId.CMIS_DOCUMENT.value());
 				properties.put(PropertyIds.NAME, rfsFile.getName());
-				vfsFile = parent.createDocument(properties, contentStream, VersioningState.NONE);
+				ObjectId documentId = session.createDocument(properties, session.createObjectId(parentId),
+						contentStream, VersioningState.NONE);
+				vfsFile = (Document)session.getObject(documentId, getOperationContext(ContextProfile.PUSH));
 			}
 
 			// Set file modification date in the VFS to the RFS file date
@@ -314,6 +836,7 @@ public class VfsAdapter {
 			*/
 
 			vfsFileModifiedTime = vfsFile.getLastModificationDate().getTimeInMillis();
+			markAlive();
 		}
 		catch (FileNotFoundException e) {
 			LOG.info("File not found.");
@@ -349,30 +872,54 @@ public class VfsAdapter {
 	}
 
 	/**
-	 * pulls a VFS file to the RFS
+	 * returns the VFS document of an entity that is to be updated. Worker adapters re-fetch the document by id
+	 * using their own session, since the entity's document was retrieved by the session of the plugin's main adapter.
+	 * @param entity the sync entity representing the file to be updated
+	 * @return the VFS document bound to this adapter's session
+	 */
+	private Document getDocumentForUpdate(SyncEntity entity) {
+		Document document = (Document)entity.getVfsObject();
+		if (mainAdapter == null) {
+			return document;
+		}
+		// the worker session may have cached an outdated version of the document during a previous sync
+		session.removeObjectFromCache(document.getId());
+		return (Document)session.getObject(document.getId(), getOperationContext(ContextProfile.PUSH));
+	}
+
+	/**
+	 * pulls a VFS file to the RFS. The content is streamed into a temporary file next to the target file, which is
+	 * then moved into place atomically, so a failed transfer never leaves a truncated file behind. The modification
+	 * date of the local file is only set to the VFS modification date if the transfer succeeded, so a failed pull is
+	 * retried by the next sync.
 	 * @param syncEntity    the sync entity representing the file to be pulled
+	 * @return <code>true</code> if the file was pulled, <code>false</code> if the pull failed
 	 */
-	public void pullFile(SyncEntity syncEntity) {
+	public boolean pullFile(SyncEntity syncEntity) {
 	    if (!connected) {
 		    LOG.info("not connected");
-		    return;
+		    return false;
 	    }
 	    Document document = (Document)syncEntity.getVfsObject();
 
 	    LOG.info("Pulling "+syncEntity.getVfsPath()+" to "+syncEntity.getOcmsModule().getLocalVfsRoot());
 
-	    InputStream is = document.getContentStream().getStream();
-	    File rfsFile = createRealFile(syncEntity);
-	    OutputStream os = null;
+	    File rfsFile = new File(syncEntity.getRfsPath());
+	    Path tempFile = null;
+	    boolean pulled = false;
+	    // the content is read using this adapter's session, the document may have been retrieved by another session
+	    InputStream is = session.getContentStream(document).getStream();
 	    try {
-	        os = new FileOutputStream(rfsFile);
-	        byte[] buffer = new byte[4096];
-	        for (int n; (n = is.read(buffer)) != -1; ) {
-	            os.write(buffer, 0, n);
-	        }
+		    FileUtils.forceMkdir(rfsFile.getParentFile());
+		    tempFile = createPullTempFile(rfsFile.toPath());
+		    writeContent(is, tempFile);
+		    moveIntoPlace(tempFile, rfsFile.toPath());
+		    tempFile = null;
+		    pulled = true;
+		    markAlive();
 	    }
 	    catch (IOException e) {
-	        LOG.info("There was an Exception writing to the local file " + syncEntity.getRfsPath() + ": " + e + "\n" + e.getMessage());
+	        LOG.warn("There was an Exception writing to the local file " + syncEntity.getRfsPath(), e);
 	    }
 	    finally {
 	        try {
@@ -381,18 +928,94 @@ public class VfsAdapter {
 	        catch (IOException e) {
 	            // Do nothing
 	        }
-		    if (os != null) {
+		    if (tempFile != null) {
 			    try {
-				    os.close();
+				    Files.deleteIfExists(tempFile);
 			    }
 			    catch (IOException e) {
-				    // Do nothing
+				    LOG.info("The temporary file " + tempFile + " could not be deleted");
 			    }
 		    }
-	        if (!rfsFile.setLastModified(document.getLastModificationDate().getTimeInMillis())) {
-		        LOG.info("there was an error setting the modification date for " + syncEntity.getRfsPath());
-	        }
 	    }
+	    if (!pulled) {
+		    return false;
+	    }
+	    syncEntity.setFile(rfsFile);
+	    if (!rfsFile.setLastModified(document.getLastModificationDate().getTimeInMillis())) {
+		    LOG.info("there was an error setting the modification date for " + syncEntity.getRfsPath());
+	    }
+	    return true;
+	}
+
+	/**
+	 * creates the temporary file a pulled file is written to. The file is created with the default permissions (other
+	 * than <code>Files.createTempFile</code>, which creates owner-only files), if the target file exists its POSIX
+	 * permissions are copied, so the permissions of the target file are kept when the temporary file is moved into
+	 * place.
+	 * @param targetFile the file to be pulled
+	 * @return the temporary file
+	 * @throws IOException if the temporary file can't be created
+	 */
+	private static Path createPullTempFile(Path targetFile) throws IOException {
+		Path tempFile;
+		while (true) {
+			tempFile = targetFile.resolveSibling("." + targetFile.getFileName() + "." + Long.toHexString(System.nanoTime()) + PULL_TEMP_FILE_SUFFIX);
+			try {
+				Files.createFile(tempFile);
+				break;
+			}
+			catch (FileAlreadyExistsException e) {
+				// try again with another name
+			}
+		}
+		if (Files.exists(targetFile) && Files.getFileAttributeView(targetFile, PosixFileAttributeView.class) != null) {
+			try {
+				Files.setPosixFilePermissions(tempFile, Files.getPosixFilePermissions(targetFile));
+			}
+			catch (IOException e) {
+				LOG.info("The permissions of " + targetFile + " could not be copied to the pulled file", e);
+			}
+		}
+		return tempFile;
+	}
+
+	/**
+	 * writes the given content stream to a file using <code>FileChannel.transferFrom</code>, the file is forced to disk
+	 * if fsync is enabled for pulls
+	 * @param is    the content stream
+	 * @param file  the file the content is written to
+	 * @throws IOException if the content can't be read or written
+	 */
+	private void writeContent(InputStream is, Path file) throws IOException {
+		ReadableByteChannel source = Channels.newChannel(is);
+		FileChannel target = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			long position = 0;
+			for (long n; (n = target.transferFrom(source, position, PULL_TRANSFER_CHUNK_SIZE)) > 0; ) {
+				position += n;
+			}
+			if (pullFsyncEnabled) {
+				target.force(true);
+			}
+		}
+		finally {
+			target.close();
+		}
+	}
+
+	/**
+	 * moves a pulled temporary file to its target location, atomically if the file system supports it
+	 * @param tempFile    the temporary file
+	 * @param targetFile  the target file, replaced if it exists
+	 * @throws IOException if the file can't be moved
+	 */
+	private static void moveIntoPlace(Path tempFile, Path targetFile) throws IOException {
+		try {
+			Files.move(tempFile, targetFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (AtomicMoveNotSupportedException e) {
+			Files.move(tempFile, targetFile, StandardCopyOption.REPLACE_EXISTING);
+		}
 	}
 
 
@@ -466,33 +1089,129 @@ public class VfsAdapter {
 	}
 
 	/**
-	 * checks if the adapter is connected (a CMIS session is active)
+	 * checks if the adapter is connected (a CMIS session is active). Doesn't access the repository, the connection
+	 * state is kept up to date by the CMIS calls made through this adapter and by the heartbeat (see
+	 * {@link #startHeartbeat()}).
 	 * @return  <code>true</code> id the adapter is connected, <code>false</code> otherwise
 	 */
 	public boolean isConnected() {
+		return connected && session != null;
+	}
+
+	/**
+	 * @return  time of the last successful CMIS call (in milliseconds), 0 if there was none yet
+	 */
+	public long getLastSuccessfulCall() {
+		return lastSuccessfulCall;
+	}
+
+	/**
+	 * checks if the repository supports retrieving a folder's descendants with one call (the capability is read once
+	 * per session)
+	 * @return  <code>true</code> if getDescendants is supported, <code>false</code> otherwise
+	 */
+	public boolean isGetDescendantsSupported() {
+		if (getDescendantsSupported == null) {
+			RepositoryCapabilities cap = session.getRepositoryInfo().getCapabilities();
+			getDescendantsSupported = cap != null && Boolean.TRUE.equals(cap.isGetDescendantsSupported());
+			LOG.info("Get descendants supported: " + getDescendantsSupported);
+		}
+		return getDescendantsSupported;
+	}
+
+	/**
+	 * retrieves the object ids and modification dates of all resources below the given VFS folder with one query for
+	 * documents and one for folders. Used to validate the sync baseline without retrieving every single resource.
+	 * @param folderPath  the VFS path of the folder (full root path)
+	 * @return  map of object ids to modification dates (in milliseconds), <code>null</code> if the repository doesn't
+	 *          support queries, the folder doesn't exist or the query failed
+	 */
+	public Map<String, Long> getModificationDatesInTree(String folderPath) {
 		if (!connected) {
-			return false;
+			LOG.warn("not connected");
+			return null;
 		}
-		if (session == null) {
-			return false;
+		RepositoryCapabilities cap = session.getRepositoryInfo().getCapabilities();
+		if (cap == null || cap.getQueryCapability() == null || cap.getQueryCapability() == CapabilityQuery.NONE) {
+			return null;
 		}
-		Folder folder = null;
 		try {
-			folder = session.getRootFolder();
+			CmisObject folder = session.getObjectByPath(PluginTools.ensureUnixPath(folderPath), getOperationContext(ContextProfile.ANALYSIS));
+			if (!(folder instanceof Folder)) {
+				return null;
+			}
+			Map<String, Long> modificationDates = new HashMap<String, Long>();
+			String[] baseTypes = {BaseTypeId.CMIS_DOCUMENT.value(), BaseTypeId.CMIS_FOLDER.value()};
+			for (String baseType : baseTypes) {
+				QueryStatement statement = session.createQueryStatement("SELECT " + PropertyIds.OBJECT_ID + ", "
+						+ PropertyIds.LAST_MODIFICATION_DATE + " FROM " + baseType + " WHERE IN_TREE(?)");
+				statement.setId(1, folder);
+				for (QueryResult result : statement.query(false, getOperationContext(ContextProfile.ANALYSIS))) {
+					String objectId = result.getPropertyValueById(PropertyIds.OBJECT_ID);
+					GregorianCalendar modificationDate = result.getPropertyValueById(PropertyIds.LAST_MODIFICATION_DATE);
+					if (objectId != null && modificationDate != null) {
+						modificationDates.put(objectId, modificationDate.getTimeInMillis());
+					}
+				}
+			}
+			markAlive();
+			return modificationDates;
 		}
-		catch (CmisConnectionException e) {
-			LOG.info("Can't read CMIS repository root folder, not connected", e);
-			connected = false;
+		catch (CmisBaseException e) {
+			LOG.info("Modification dates for the VFS tree " + folderPath + " could not be queried", e);
+			return null;
 		}
-		catch (CmisObjectNotFoundException e) {
-			LOG.info("Can't read CMIS repository root folder, not connected", e);
-			connected = false;
+	}
+
+	/**
+	 * Warms up the CMIS connection so the first sync doesn't have to pay for it: starts the session if it isn't
+	 * started yet, fetches the repository info and the base type definitions and reads the root folder and the given
+	 * folders. Folders that don't exist in the VFS are skipped.
+	 * @param folderPaths VFS paths of folders that should be read (e.g. the module resources)
+	 * @return  <code>true</code> if the session could be started, <code>false</code> otherwise
+	 */
+	public boolean warmUp(Collection<String> folderPaths) {
+		long start = System.currentTimeMillis();
+		if (!isConnected()) {
+			try {
+				startSession();
+			}
+			catch (CmsConnectionException e) {
+				LOG.info("CMIS warm-up failed, no connection to the VFS");
+				return false;
+			}
 		}
-		catch (CmisPermissionDeniedException e) {
-			LOG.info("CMIS says permission denied, not connected", e);
-			connected = false;
+		Session currentSession = session;
+		if (currentSession == null) {
+			return false;
+		}
+		int numFolders = 0;
+		try {
+			currentSession.getRepositoryInfo();
+			currentSession.getTypeDefinition(BaseTypeId.CMIS_FOLDER.value());
+			currentSession.getTypeDefinition(BaseTypeId.CMIS_DOCUMENT.value());
+			OperationContext context = getOperationContext(ContextProfile.ANALYSIS);
+			currentSession.getRootFolder(context);
+			markAlive();
+			for (String folderPath : folderPaths) {
+				if (folderPath == null || !folderPath.startsWith("/")) {
+					continue;
+				}
+				try {
+					currentSession.getObjectByPath(folderPath, context);
+					numFolders++;
+				}
+				catch (CmisObjectNotFoundException e) {
+					// the resource doesn't exist in the VFS yet, nothing to warm up
+				}
+			}
+		}
+		catch (CmisBaseException e) {
+			LOG.info("CMIS warm-up failed", e);
+			return false;
 		}
-	    return folder != null && connected;
+		LOG.info("CMIS warm-up finished in " + (System.currentTimeMillis() - start) + " ms, " + numFolders + " folders read");
+		return true;
 	}
 
 	/**
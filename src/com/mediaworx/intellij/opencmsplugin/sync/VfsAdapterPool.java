@@ -0,0 +1,126 @@
+/*
+ * This file is part of the OpenCms plugin for IntelliJ by mediaworx.
+ *
+ * For further information about the OpenCms plugin for IntelliJ, please
+ * see the project website at GitHub:
+ * https://github.com/mediaworx/opencms-intellijplugin
+ *
+ * Copyright (C) 2007-2016 mediaworx berlin AG (http://www.mediaworx.com)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.mediaworx.intellij.opencmsplugin.sync;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.mediaworx.intellij.opencmsplugin.exceptions.CmsConnectionException;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Pool of VfsAdapters used by parallel sync workers. Every pooled adapter uses its own CMIS session. Adapters are
+ * created lazily when no idle adapter is available, so small syncs don't open unneeded sessions, and returned to the
+ * pool after use, so subsequent syncs reuse the sessions. The number of adapters in use is limited by the number of
+ * worker threads of the running sync jobs, the pool itself never blocks. If a worker session can't be started, the
+ * plugin's main adapter is used instead (OpenCMIS sessions are thread safe). The pool is owned by the main adapter
+ * (see {@link VfsAdapter#getWorkerPool()}) and reused by subsequent syncs until it is closed.
+ */
+class VfsAdapterPool {
+
+	private static final Logger LOG = Logger.getInstance(VfsAdapterPool.class);
+
+	/** the plugin's main adapter, used as template for worker adapters and as fallback */
+	private VfsAdapter mainAdapter;
+
+	/** adapters that are currently not in use */
+	private Queue<VfsAdapter> idleAdapters;
+
+	/** flag denoting if the pool was closed, adapters returned to a closed pool are disconnected */
+	private volatile boolean closed;
+
+	/**
+	 * Creates a new pool
+	 * @param mainAdapter the plugin's main adapter, used as template for new worker adapters
+	 */
+	VfsAdapterPool(VfsAdapter mainAdapter) {
+		this.mainAdapter = mainAdapter;
+		idleAdapters = new ConcurrentLinkedQueue<VfsAdapter>();
+	}
+
+	/**
+	 * Gets an idle adapter from the pool or creates a new one if no connected adapter is idle. Adapters must be
+	 * returned to the pool by calling {@link #release(VfsAdapter)}. A closed pool creates a new adapter for every
+	 * call, so sync jobs still running while the pool is closed can finish.
+	 * @return a connected VfsAdapter
+	 */
+	VfsAdapter acquire() {
+		VfsAdapter adapter;
+		while ((adapter = idleAdapters.poll()) != null) {
+			if (adapter == mainAdapter || adapter.isConnected()) {
+				return adapter;
+			}
+			// the worker's session was lost
+			adapter.endSession();
+		}
+		return createAdapter();
+	}
+
+	/**
+	 * Returns an adapter to the pool
+	 * @param adapter the adapter that was retrieved by {@link #acquire()}
+	 */
+	void release(VfsAdapter adapter) {
+		if (closed) {
+			closeAdapter(adapter);
+		}
+		else {
+			idleAdapters.offer(adapter);
+			// the pool may have been closed in the meantime
+			if (closed && idleAdapters.remove(adapter)) {
+				closeAdapter(adapter);
+			}
+		}
+	}
+
+	/**
+	 * Closes the pool and the sessions of all idle worker adapters. Adapters that are in use while the pool is closed
+	 * are disconnected when they are released.
+	 */
+	void close() {
+		closed = true;
+		VfsAdapter adapter;
+		while ((adapter = idleAdapters.poll()) != null) {
+			closeAdapter(adapter);
+		}
+	}
+
+	private void closeAdapter(VfsAdapter adapter) {
+		if (adapter != mainAdapter) {
+			adapter.endSession();
+		}
+	}
+
+	private VfsAdapter createAdapter() {
+		VfsAdapter adapter = mainAdapter.createWorkerAdapter();
+		try {
+			adapter.startSession();
+			return adapter;
+		}
+		catch (CmsConnectionException e) {
+			LOG.warn("The CMIS session for a sync worker could not be started, using the default session instead", e);
+			return mainAdapter;
+		}
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * This file is part of the OpenCms plugin for IntelliJ by mediaworx.
+ *
+ * For further information about the OpenCms plugin for IntelliJ, please
+ * see the project website at GitHub:
+ * https://github.com/mediaworx/opencms-intellijplugin
+ *
+ * Copyright (C) 2007-2016 mediaworx berlin AG (http://www.mediaworx.com)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+
+package com.mediaworx.intellij.opencmsplugin.sync;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache for the ids of VFS folders that were already retrieved or created during one sync run, mapped by their VFS
+ * path. Used by the VfsAdapter to resolve parent folders from memory, so every folder is looked up or created only
+ * once per run. The cache may be shared by several sync workers. Only ids are cached since CMIS objects are bound to
+ * the session that retrieved them and the workers use different sessions.
+ */
+public class VfsFolderCache {
+
+	/** the ids of the cached folders, mapped by their VFS path */
+	private ConcurrentMap<String, String> folderIdsByPath;
+
+	public VfsFolderCache() {
+		folderIdsByPath = new ConcurrentHashMap<String, String>();
+	}
+
+	/**
+	 * Returns the cached folder id for the given VFS path
+	 * @param vfsPath the VFS path of the folder (full root path)
+	 * @return the id of the cached folder, <code>null</code> if the folder is not cached
+	 */
+	public String get(String vfsPath) {
+		return folderIdsByPath.get(normalizePath(vfsPath));
+	}
+
+	/**
+	 * Adds a folder id to the cache
+	 * @param vfsPath  the VFS path of the folder (full root path)
+	 * @param folderId the id of the folder
+	 */
+	public void put(String vfsPath, String folderId) {
+		if (folderId != null) {
+			folderIdsByPath.put(normalizePath(vfsPath), folderId);
+		}
+	}
+
+	/**
+	 * @return the number of cached folders
+	 */
+	public int size() {
+		return folderIdsByPath.size();
+	}
+
+	static String normalizePath(String vfsPath) {
+		if (vfsPath.length() == 0) {
+			return "/";
+		}
+		if (vfsPath.length() > 1 && vfsPath.endsWith("/")) {
+			return vfsPath.substring(0, vfsPath.length() - 1);
+		}
+		return vfsPath;
+	}
+}
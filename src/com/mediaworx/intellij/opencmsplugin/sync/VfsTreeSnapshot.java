@@ -0,0 +1,174 @@
+/*
+ * This file is part of the OpenCms plugin for IntelliJ by mediaworx.
+ *
+ * For further information about the OpenCms plugin for IntelliJ, please
+ * see the project website at GitHub:
+ * https://github.com/mediaworx/opencms-intellijplugin
+ *
+ * Copyright (C) 2007-2016 mediaworx berlin AG (http://www.mediaworx.com)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.mediaworx.intellij.opencmsplugin.sync;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.mediaworx.intellij.opencmsplugin.exceptions.CmsPermissionDeniedException;
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.FileableCmisObject;
+import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.api.Tree;
+
+import java.util.*;
+
+/**
+ * In memory snapshot of VFS subtrees, used by the SyncFileAnalyzer to compare the RFS against the VFS without
+ * retrieving every single VFS resource separately. Each subtree (usually a module resource) is fetched with one
+ * <code>getDescendants</code> call if the repository supports it, otherwise with one <code>getChildren</code> call
+ * per folder.
+ */
+class VfsTreeSnapshot {
+
+	private static final Logger LOG = Logger.getInstance(VfsTreeSnapshot.class);
+
+	/** root paths of all subtrees contained in the snapshot */
+	private Set<String> rootPaths;
+
+	/** all VFS objects in the snapshot, mapped by their VFS path */
+	private Map<String, CmisObject> objectsByPath;
+
+	/** children of all folders in the snapshot, mapped by the folder's VFS path */
+	private Map<String, List<CmisObject>> childrenByPath;
+
+	/** flag denoting if the root objects of the subtrees may be taken from the CMIS session cache */
+	private boolean cacheEnabled;
+
+	/**
+	 * Creates a new, empty snapshot
+	 * @param cacheEnabled <code>true</code> if VFS objects may be taken from the CMIS session cache,
+	 *                     <code>false</code> if they have to be read from the repository
+	 */
+	VfsTreeSnapshot(boolean cacheEnabled) {
+		this.cacheEnabled = cacheEnabled;
+		rootPaths = new HashSet<String>();
+		objectsByPath = new HashMap<String, CmisObject>();
+		childrenByPath = new HashMap<String, List<CmisObject>>();
+	}
+
+	/**
+	 * Adds the VFS subtree under the given VFS path to the snapshot. If the path is already covered by the snapshot,
+	 * nothing is done.
+	 * @param vfsAdapter the adapter used to retrieve the VFS resources
+	 * @param vfsPath    the root path of the subtree
+	 * @throws CmsPermissionDeniedException if the root of the subtree can't be accessed
+	 */
+	void addSubtree(VfsAdapter vfsAdapter, String vfsPath) throws CmsPermissionDeniedException {
+		vfsPath = normalizePath(vfsPath);
+		if (covers(vfsPath)) {
+			return;
+		}
+		CmisObject rootObject = vfsAdapter.getVfsObject(vfsPath, VfsAdapter.ContextProfile.ANALYSIS, cacheEnabled);
+		rootPaths.add(vfsPath);
+		if (rootObject == null) {
+			return;
+		}
+		objectsByPath.put(vfsPath, rootObject);
+		if (rootObject instanceof Folder) {
+			long start = System.currentTimeMillis();
+			OperationContext context = vfsAdapter.getOperationContext(VfsAdapter.ContextProfile.ANALYSIS, cacheEnabled);
+			if (vfsAdapter.isGetDescendantsSupported()) {
+				addDescendants(vfsPath, ((Folder)rootObject).getDescendants(-1, context));
+			}
+			else {
+				addChildrenRecursively(vfsPath, (Folder)rootObject, context);
+			}
+			LOG.info("Fetched VFS subtree " + vfsPath + " in " + (System.currentTimeMillis() - start) + " ms");
+		}
+	}
+
+	private void addDescendants(String parentPath, List<Tree<FileableCmisObject>> descendants) {
+		List<CmisObject> children = new ArrayList<CmisObject>(descendants != null ? descendants.size() : 0);
+		childrenByPath.put(parentPath, children);
+		if (descendants == null) {
+			return;
+		}
+		for (Tree<FileableCmisObject> descendant : descendants) {
+			CmisObject child = descendant.getItem();
+			String childPath = parentPath + "/" + child.getName();
+			children.add(child);
+			objectsByPath.put(childPath, child);
+			if (child instanceof Folder) {
+				addDescendants(childPath, descendant.getChildren());
+			}
+		}
+	}
+
+	private void addChildrenRecursively(String folderPath, Folder folder, OperationContext context) {
+		List<CmisObject> children = new ArrayList<CmisObject>();
+		childrenByPath.put(folderPath, children);
+		for (CmisObject child : folder.getChildren(context)) {
+			String childPath = folderPath + "/" + child.getName();
+			children.add(child);
+			objectsByPath.put(childPath, child);
+			if (child instanceof Folder) {
+				addChildrenRecursively(childPath, (Folder)child, context);
+			}
+		}
+	}
+
+	/**
+	 * Checks if the given VFS path is contained in one of the subtrees of this snapshot. For covered paths the
+	 * snapshot is authoritative, so if {@link #getObject(String)} returns <code>null</code>, the resource doesn't exist
+	 * in the VFS.
+	 * @param vfsPath the VFS path to check
+	 * @return <code>true</code> if the path is covered by the snapshot, <code>false</code> otherwise
+	 */
+	boolean covers(String vfsPath) {
+		String path = normalizePath(vfsPath);
+		while (path.length() > 0) {
+			if (rootPaths.contains(path)) {
+				return true;
+			}
+			path = path.substring(0, Math.max(path.lastIndexOf('/'), 0));
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the VFS object at the given path from the snapshot
+	 * @param vfsPath the VFS path
+	 * @return the VFS object, <code>null</code> if there is no VFS object at the given path
+	 */
+	CmisObject getObject(String vfsPath) {
+		return objectsByPath.get(normalizePath(vfsPath));
+	}
+
+	/**
+	 * Returns the children of the VFS folder at the given path from the snapshot
+	 * @param vfsPath the VFS path of the folder
+	 * @return the folder's children, <code>null</code> if the folder's children are not contained in the snapshot
+	 */
+	List<CmisObject> getChildren(String vfsPath) {
+		return childrenByPath.get(normalizePath(vfsPath));
+	}
+
+	private static String normalizePath(String vfsPath) {
+		if (vfsPath.length() > 1 && vfsPath.endsWith("/")) {
+			return vfsPath.substring(0, vfsPath.length() - 1);
+		}
+		return vfsPath;
+	}
+}
@@ -0,0 +1,197 @@
+/*
+ * This file is part of the OpenCms plugin for IntelliJ by mediaworx.
+ *
+ * For further information about the OpenCms plugin for IntelliJ, please
+ * see the project website at GitHub:
+ * https://github.com/mediaworx/opencms-intellijplugin
+ *
+ * Copyright (C) 2007-2016 mediaworx berlin AG (http://www.mediaworx.com)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+
+package com.mediaworx.intellij.opencmsplugin.tools;
+
+import com.intellij.openapi.diagnostic.Logger;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Immutable matcher for the ignored files and folders configuration, compiled once whenever the configuration
+ * changes. Patterns that are plain names (e.g. <code>\.svn</code> or <code>target</code>) are matched with hash
+ * lookups, all other patterns are combined into one precompiled regular expression for file names and one for paths.
+ * <br />
+ * The semantics are the same as matching each pattern separately: a path is ignored if any of its segments (or
+ * sequence of segments) following a slash matches one of the ignored path patterns, a file is ignored if its name
+ * matches one of the ignored file patterns.
+ */
+public class IgnoredResourceMatcher {
+
+	private static final Logger LOG = Logger.getInstance(IgnoredResourceMatcher.class);
+
+	/** characters that have a special meaning in regular expressions */
+	private static final String REGEX_META_CHARS = "\\^$.|?*+()[]{}";
+
+	/** matcher that doesn't ignore anything */
+	public static final IgnoredResourceMatcher EMPTY = new IgnoredResourceMatcher(null, null);
+
+	/** ignored file names that are plain names */
+	private final Set<String> literalFilenames;
+
+	/** combined pattern for all ignored file names that are regular expressions, <code>null</code> if there are none */
+	private final Pattern filenamePattern;
+
+	/** ignored folder names that are plain names */
+	private final Set<String> literalFolderNames;
+
+	/** combined pattern for all ignored paths that are regular expressions, <code>null</code> if there are none */
+	private final Pattern pathPattern;
+
+	/**
+	 * Compiles a new matcher for the given patterns, invalid regular expressions are logged and skipped
+	 * @param ignoredFilenames regular expressions for ignored file names, may be <code>null</code>
+	 * @param ignoredPaths     regular expressions for ignored folders, may be <code>null</code>
+	 */
+	public IgnoredResourceMatcher(String[] ignoredFilenames, String[] ignoredPaths) {
+		literalFilenames = new HashSet<String>();
+		List<String> filenameRegexes = new ArrayList<String>();
+		splitPatterns(ignoredFilenames, literalFilenames, filenameRegexes);
+		filenamePattern = compile(filenameRegexes, "^(?:", ")$");
+
+		literalFolderNames = new HashSet<String>();
+		List<String> pathRegexes = new ArrayList<String>();
+		splitPatterns(ignoredPaths, literalFolderNames, pathRegexes);
+		// equivalent to path.matches(".*/" + ignoredPath + "(/.*)?") for each single pattern
+		pathPattern = compile(pathRegexes, "/(?:", ")(?=/|\\z)");
+	}
+
+	/**
+	 * Checks if a resource is ignored
+	 * @param path     full file system path of the resource (unix style)
+	 * @param filename name of the resource
+	 * @return <code>true</code> if the resource is ignored, <code>false</code> otherwise
+	 */
+	public boolean isIgnored(String path, String filename) {
+		return isPathIgnored(path) || isFilenameIgnored(filename);
+	}
+
+	/**
+	 * Checks if a path is ignored due to the ignored folders configuration
+	 * @param path full file system path (unix style)
+	 * @return <code>true</code> if the path is ignored, <code>false</code> otherwise
+	 */
+	public boolean isPathIgnored(String path) {
+		if (!literalFolderNames.isEmpty()) {
+			int segmentStart = path.indexOf('/');
+			while (segmentStart >= 0) {
+				int segmentEnd = path.indexOf('/', segmentStart + 1);
+				String segment = segmentEnd < 0 ? path.substring(segmentStart + 1) : path.substring(segmentStart + 1, segmentEnd);
+				if (literalFolderNames.contains(segment)) {
+					return true;
+				}
+				segmentStart = segmentEnd;
+			}
+		}
+		return pathPattern != null && pathPattern.matcher(path).find();
+	}
+
+	/**
+	 * Checks if a file name is ignored due to the ignored files configuration
+	 * @param filename the file name
+	 * @return <code>true</code> if the file name is ignored, <code>false</code> otherwise
+	 */
+	public boolean isFilenameIgnored(String filename) {
+		return literalFilenames.contains(filename) || filenamePattern != null && filenamePattern.matcher(filename).matches();
+	}
+
+	/**
+	 * Sorts the given patterns into plain names and regular expressions
+	 */
+	private static void splitPatterns(String[] patterns, Set<String> literals, List<String> regexes) {
+		if (patterns == null) {
+			return;
+		}
+		for (String pattern : patterns) {
+			if (pattern.length() == 0) {
+				continue;
+			}
+			String literal = toLiteral(pattern);
+			if (literal != null && literal.indexOf('/') < 0) {
+				literals.add(literal);
+			}
+			else {
+				regexes.add(pattern);
+			}
+		}
+	}
+
+	/**
+	 * Converts a regular expression that doesn't use any regex features other than escaped characters to the plain
+	 * String it matches
+	 * @param regex the regular expression
+	 * @return the plain String matched by the regular expression, <code>null</code> if the regular expression uses
+	 *         other regex features
+	 */
+	private static String toLiteral(String regex) {
+		StringBuilder literal = new StringBuilder(regex.length());
+		for (int i = 0; i < regex.length(); i++) {
+			char c = regex.charAt(i);
+			if (c == '\\') {
+				if (i + 1 >= regex.length() || Character.isLetterOrDigit(regex.charAt(i + 1))) {
+					return null;
+				}
+				literal.append(regex.charAt(++i));
+			}
+			else if (REGEX_META_CHARS.indexOf(c) >= 0) {
+				return null;
+			}
+			else {
+				literal.append(c);
+			}
+		}
+		return literal.toString();
+	}
+
+	/**
+	 * Combines the given regular expressions into one pattern
+	 * @return the combined pattern, <code>null</code> if there are no (valid) regular expressions
+	 */
+	private static Pattern compile(List<String> regexes, String prefix, String suffix) {
+		StringBuilder combined = new StringBuilder();
+		for (String regex : regexes) {
+			try {
+				Pattern.compile(regex);
+			}
+			catch (PatternSyntaxException e) {
+				LOG.warn("Ignoring invalid regular expression in the ignored files/folders configuration: " + regex, e);
+				continue;
+			}
+			if (combined.length() > 0) {
+				combined.append('|');
+			}
+			combined.append("(?:").append(regex).append(')');
+		}
+		if (combined.length() == 0) {
+			return null;
+		}
+		return Pattern.compile(prefix + combined + suffix);
+	}
+}
@@ -0,0 +1,298 @@
+/*
+ * This file is part of the OpenCms plugin for IntelliJ by mediaworx.
+ *
+ * For further information about the OpenCms plugin for IntelliJ, please
+ * see the project website at GitHub:
+ * https://github.com/mediaworx/opencms-intellijplugin
+ *
+ * Copyright (C) 2007-2016 mediaworx berlin AG (http://www.mediaworx.com)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+
+package com.mediaworx.intellij.opencmsplugin.tools;
+
+import com.intellij.openapi.diagnostic.Logger;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scheduling service shared by all projects, replaces the timers and threads that were created for every single
+ * background task. Tasks are executed by a few named executors with a bounded number of threads (see {@link Pool}),
+ * idle threads are terminated after {@link #KEEP_ALIVE_TIME} milliseconds. Keyed tasks can be coalesced (see
+ * {@link #scheduleCoalesced(Pool, Object, Runnable, long)}). For each executor the queue depth, the number of executed
+ * tasks and the latency between the planned and the actual start of tasks are recorded.
+ */
+public class PluginScheduler {
+
+	private static final Logger LOG = Logger.getInstance(PluginScheduler.class);
+
+	/** time (in milliseconds) after which idle executor threads are terminated */
+	private static final long KEEP_ALIVE_TIME = 60000;
+
+	/**
+	 * The executors of the scheduler
+	 */
+	public enum Pool {
+		/** local file system work like reading configurations or activating the plugin */
+		IO("OpenCms I/O", Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()))),
+		/**
+		 * short, latency sensitive CMIS and connector calls (heartbeats, existence checks, warm-up), long running jobs
+		 * are executed by {@link #JOBS}, so they can't starve these tasks
+		 */
+		CMIS("OpenCms CMIS", 4),
+		/** long running, user triggered jobs like syncs and module imports */
+		JOBS("OpenCms job", 8),
+		/** refreshes of the IntelliJ file system */
+		REFRESH("OpenCms refresh", 1),
+		/** timing of delayed and coalesced tasks, the tasks themselves are passed on to their target executor */
+		DEBOUNCE("OpenCms debounce", 1);
+
+		private final String threadName;
+		private final int numThreads;
+
+		Pool(String threadName, int numThreads) {
+			this.threadName = threadName;
+			this.numThreads = numThreads;
+		}
+	}
+
+	private static PluginScheduler instance;
+
+	private final Map<Pool, ScheduledThreadPoolExecutor> executors = new EnumMap<Pool, ScheduledThreadPoolExecutor>(Pool.class);
+	private final Map<Pool, PoolMetrics> metrics = new EnumMap<Pool, PoolMetrics>(Pool.class);
+
+	/** coalesced tasks that are scheduled, but not passed on to their executor yet */
+	private final Map<Object, ScheduledFuture<?>> pendingCoalescedTasks = new HashMap<Object, ScheduledFuture<?>>();
+
+	/**
+	 * @return the scheduler shared by all projects
+	 */
+	public static synchronized PluginScheduler getInstance() {
+		if (instance == null) {
+			instance = new PluginScheduler();
+		}
+		return instance;
+	}
+
+	private PluginScheduler() {
+		for (final Pool pool : Pool.values()) {
+			ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(pool.numThreads, new ThreadFactory() {
+				private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, pool.threadName + " " + threadNumber.getAndIncrement());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			executor.setKeepAliveTime(KEEP_ALIVE_TIME, TimeUnit.MILLISECONDS);
+			executor.allowCoreThreadTimeOut(true);
+			executor.setRemoveOnCancelPolicy(true);
+			executors.put(pool, executor);
+			metrics.put(pool, new PoolMetrics());
+		}
+	}
+
+	/**
+	 * Executes a task as soon as a thread of the given executor is available
+	 * @param pool the executor to be used
+	 * @param task the task to be executed
+	 * @return the future of the task
+	 */
+	public Future<?> submit(Pool pool, Runnable task) {
+		return executors.get(pool).submit(new TimedTask(pool, task, System.currentTimeMillis()));
+	}
+
+	/**
+	 * Executes a task after the given delay
+	 * @param pool  the executor to be used
+	 * @param task  the task to be executed
+	 * @param delay the delay in milliseconds
+	 * @return the future of the task
+	 */
+	public ScheduledFuture<?> schedule(Pool pool, Runnable task, long delay) {
+		return executors.get(pool).schedule(new TimedTask(pool, task, System.currentTimeMillis() + delay), delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Executes a task periodically, the task is never cancelled by an exception
+	 * @param pool  the executor to be used
+	 * @param task  the task to be executed
+	 * @param delay the initial delay and the delay between the end of one and the start of the next execution (in
+	 *              milliseconds)
+	 * @return the future of the task, to be used to cancel the periodic execution
+	 */
+	public ScheduledFuture<?> scheduleWithFixedDelay(Pool pool, Runnable task, long delay) {
+		return executors.get(pool).scheduleWithFixedDelay(new TimedTask(pool, task, -1), delay, delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Executes a task after the given delay, a task with the same key that is scheduled, but not started yet, is
+	 * dropped. So if a task is requested repeatedly within the delay, it is executed only once.
+	 * @param pool  the executor used to execute the task
+	 * @param key   the key identifying the task (compared using equals)
+	 * @param task  the task to be executed
+	 * @param delay the delay in milliseconds
+	 */
+	public void scheduleCoalesced(final Pool pool, final Object key, final Runnable task, final long delay) {
+		synchronized (pendingCoalescedTasks) {
+			ScheduledFuture<?> pendingTask = pendingCoalescedTasks.get(key);
+			if (pendingTask != null) {
+				pendingTask.cancel(false);
+			}
+			final long plannedStart = System.currentTimeMillis() + delay;
+			pendingCoalescedTasks.put(key, executors.get(Pool.DEBOUNCE).schedule(new Runnable() {
+				@Override
+				public void run() {
+					synchronized (pendingCoalescedTasks) {
+						pendingCoalescedTasks.remove(key);
+					}
+					executors.get(pool).execute(new TimedTask(pool, task, plannedStart));
+				}
+			}, delay, TimeUnit.MILLISECONDS));
+		}
+	}
+
+	/**
+	 * Cancels a coalesced task that is scheduled, but not started yet
+	 * @param key the key identifying the task
+	 */
+	public void cancelCoalesced(Object key) {
+		synchronized (pendingCoalescedTasks) {
+			ScheduledFuture<?> pendingTask = pendingCoalescedTasks.remove(key);
+			if (pendingTask != null) {
+				pendingTask.cancel(false);
+			}
+		}
+	}
+
+	/**
+	 * @param pool the executor
+	 * @return the number of tasks waiting in the executor's queue (including delayed tasks)
+	 */
+	public int getQueueDepth(Pool pool) {
+		return executors.get(pool).getQueue().size();
+	}
+
+	/**
+	 * @param pool the executor
+	 * @return the number of tasks the executor has executed
+	 */
+	public long getExecutedTaskCount(Pool pool) {
+		return metrics.get(pool).numExecuted.get();
+	}
+
+	/**
+	 * @param pool the executor
+	 * @return the average time (in milliseconds) between the planned and the actual start of the executor's tasks
+	 */
+	public long getAverageLatency(Pool pool) {
+		PoolMetrics poolMetrics = metrics.get(pool);
+		long numTimed = poolMetrics.numTimed.get();
+		return numTimed > 0 ? poolMetrics.totalLatency.get() / numTimed : 0;
+	}
+
+	/**
+	 * @param pool the executor
+	 * @return the maximum time (in milliseconds) between the planned and the actual start of the executor's tasks
+	 */
+	public long getMaxLatency(Pool pool) {
+		return metrics.get(pool).maxLatency.get();
+	}
+
+	/**
+	 * @return the metrics of all executors as one line of text (used for logging)
+	 */
+	public String getMetricsSummary() {
+		StringBuilder summary = new StringBuilder();
+		for (Pool pool : Pool.values()) {
+			if (summary.length() > 0) {
+				summary.append(", ");
+			}
+			summary.append(pool.threadName).append(": queued=").append(getQueueDepth(pool))
+					.append(" executed=").append(getExecutedTaskCount(pool))
+					.append(" avgLatency=").append(getAverageLatency(pool)).append("ms")
+					.append(" maxLatency=").append(getMaxLatency(pool)).append("ms");
+		}
+		return summary.toString();
+	}
+
+	private static class PoolMetrics {
+		private final AtomicLong numExecuted = new AtomicLong();
+		private final AtomicLong numTimed = new AtomicLong();
+		private final AtomicLong totalLatency = new AtomicLong();
+		private final AtomicLong maxLatency = new AtomicLong();
+
+		private void recordLatency(long latency) {
+			numTimed.incrementAndGet();
+			totalLatency.addAndGet(latency);
+			long max = maxLatency.get();
+			while (latency > max && !maxLatency.compareAndSet(max, latency)) {
+				max = maxLatency.get();
+			}
+		}
+	}
+
+	/**
+	 * Wrapper recording the metrics of a task and logging exceptions (that would otherwise be swallowed by the
+	 * executor)
+	 */
+	private class TimedTask implements Runnable {
+
+		private final Pool pool;
+		private final Runnable task;
+		private final long plannedStart;
+
+		/**
+		 * @param pool         the executor executing the task
+		 * @param task         the task
+		 * @param plannedStart the time the task should be started at (if negative, the latency isn't recorded)
+		 */
+		private TimedTask(Pool pool, Runnable task, long plannedStart) {
+			this.pool = pool;
+			this.task = task;
+			this.plannedStart = plannedStart;
+		}
+
+		@Override
+		public void run() {
+			PoolMetrics poolMetrics = metrics.get(pool);
+			if (plannedStart >= 0) {
+				poolMetrics.recordLatency(Math.max(0, System.currentTimeMillis() - plannedStart));
+			}
+			try {
+				task.run();
+			}
+			catch (RuntimeException e) {
+				LOG.warn("Exception in a task executed by " + pool.threadName, e);
+			}
+			finally {
+				poolMetrics.numExecuted.incrementAndGet();
+			}
+		}
+	}
+}
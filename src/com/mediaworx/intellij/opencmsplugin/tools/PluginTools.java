@@ -77,7 +77,7 @@ public class PluginTools {
 		if (path == null || path.length() == 0) {
 			return path;
 		}
-		return path.replaceAll("\\\\", "/");
+		return path.indexOf('\\') < 0 ? path : path.replace('\\', '/');
 	}
 
 	/**
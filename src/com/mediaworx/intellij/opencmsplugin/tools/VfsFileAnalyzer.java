@@ -198,18 +198,14 @@ public abstract class VfsFileAnalyzer {
 	 * @return <code>true</code> if the resource is ignored, <code>false</code> otherwise
 	 */
 	public static boolean fileOrPathIsIgnored(OpenCmsPluginConfigurationData config, final String path, String filename) {
-		for (String ignoredPath : config.getIgnoredPathsArray()) {
-			if (path.matches(".*/"+ignoredPath+"(/.*)?")) {
-				LOG.info("path " + ignoredPath + " is ignored");
-				return true;
-			}
+		IgnoredResourceMatcher matcher = config.getIgnoredResourceMatcher();
+		if (matcher.isPathIgnored(path)) {
+			LOG.info("path " + path + " is ignored");
+			return true;
 		}
-
-		for (String ignoredFilename : config.getIgnoredFilesArray()) {
-			if (filename.matches(ignoredFilename)) {
-				LOG.info("file " + ignoredFilename + " is ignored");
-				return true;
-			}
+		if (matcher.isFilenameIgnored(filename)) {
+			LOG.info("file " + filename + " is ignored");
+			return true;
 		}
 		return false;
 	}
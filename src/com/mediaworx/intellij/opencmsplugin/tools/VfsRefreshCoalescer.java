@@ -0,0 +1,235 @@
+/*
+ * This file is part of the OpenCms plugin for IntelliJ by mediaworx.
+ *
+ * For further information about the OpenCms plugin for IntelliJ, please
+ * see the project website at GitHub:
+ * https://github.com/mediaworx/opencms-intellijplugin
+ *
+ * Copyright (C) 2007-2016 mediaworx berlin AG (http://www.mediaworx.com)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+
+package com.mediaworx.intellij.opencmsplugin.tools;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.vfs.LocalFileSystem;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * Collects refresh requests for IntelliJ's file system from all sync jobs, file change handlers and actions and
+ * executes them in batches. Requests arriving while a refresh is pending are merged into that refresh (the refresh is
+ * delayed by at most {@link #MAX_DELAY} milliseconds after the first request of a batch). Before the refresh, the files
+ * of a batch are collapsed into a minimal set of refresh roots:
+ * <ul>
+ *     <li>files whose parent folder contains at least {@link #FOLDER_COLLAPSE_THRESHOLD} requested files are replaced
+ *     by their parent folder (refreshing a folder non recursively refreshes its direct children)</li>
+ *     <li>files and folders below another requested folder are dropped, the ancestor folder is refreshed
+ *     recursively</li>
+ * </ul>
+ * Each batch results in at most two asynchronous refreshes, one for the non recursive and one for the recursive
+ * roots.
+ */
+public class VfsRefreshCoalescer {
+
+	private static final Logger LOG = Logger.getInstance(VfsRefreshCoalescer.class);
+
+	/** number of requested files in one folder from which on the folder is refreshed instead of the single files */
+	static final int FOLDER_COLLAPSE_THRESHOLD = 5;
+
+	/** maximum time (in milliseconds) a refresh is delayed after the first request of a batch */
+	static final long MAX_DELAY = 5000;
+
+	private static final String TASK_KEY = "OpenCms VFS refresh";
+
+	private static VfsRefreshCoalescer instance;
+
+	/** files to be refreshed with the next batch */
+	private final Set<File> pendingFiles = new LinkedHashSet<File>();
+
+	/** time of the first request of the pending batch, 0 if there is no pending batch */
+	private long batchStart = 0;
+
+	/** time the pending batch is scheduled for */
+	private long plannedRefresh = 0;
+
+	/**
+	 * @return the coalescer shared by all projects
+	 */
+	public static synchronized VfsRefreshCoalescer getInstance() {
+		if (instance == null) {
+			instance = new VfsRefreshCoalescer();
+		}
+		return instance;
+	}
+
+	/**
+	 * Requests an asynchronous refresh of the given files. The refresh is executed after the given delay (or later, if
+	 * a pending refresh was requested with a longer delay), but no later than {@link #MAX_DELAY} milliseconds after the
+	 * first request of the batch.
+	 * @param files the files to be refreshed (files and folders, existing or deleted)
+	 * @param delay the minimum delay in milliseconds
+	 */
+	public void refreshLater(Collection<File> files, long delay) {
+		if (files.isEmpty()) {
+			return;
+		}
+		long now = System.currentTimeMillis();
+		long refreshTime;
+		synchronized (pendingFiles) {
+			pendingFiles.addAll(files);
+			if (batchStart == 0) {
+				batchStart = now;
+			}
+			refreshTime = Math.min(Math.max(plannedRefresh, now + delay), batchStart + Math.max(MAX_DELAY, delay));
+			if (refreshTime == plannedRefresh) {
+				return;
+			}
+			plannedRefresh = refreshTime;
+		}
+		PluginScheduler.getInstance().scheduleCoalesced(PluginScheduler.Pool.REFRESH, TASK_KEY, new Runnable() {
+			@Override
+			public void run() {
+				refreshPendingFiles();
+			}
+		}, refreshTime - now);
+	}
+
+	/**
+	 * Executes the refresh for all pending files
+	 */
+	private void refreshPendingFiles() {
+		List<File> files;
+		synchronized (pendingFiles) {
+			files = new ArrayList<File>(pendingFiles);
+			pendingFiles.clear();
+			batchStart = 0;
+			plannedRefresh = 0;
+		}
+		if (files.isEmpty()) {
+			return;
+		}
+
+		final long start = System.currentTimeMillis();
+		final List<File> nonRecursiveRoots = new ArrayList<File>();
+		final List<File> recursiveRoots = new ArrayList<File>();
+		collapse(files, nonRecursiveRoots, recursiveRoots);
+		final int numRequested = files.size();
+		LOG.info("Refreshing " + numRequested + " file(s) using " + nonRecursiveRoots.size() + " non recursive and " + recursiveRoots.size() + " recursive refresh root(s)");
+
+		LocalFileSystem localFileSystem = LocalFileSystem.getInstance();
+		if (!nonRecursiveRoots.isEmpty()) {
+			localFileSystem.refreshIoFiles(nonRecursiveRoots, true, false, new Runnable() {
+				@Override
+				public void run() {
+					LOG.info("Non recursive refresh of " + nonRecursiveRoots.size() + " root(s) for " + numRequested + " requested file(s) finished in " + (System.currentTimeMillis() - start) + " ms");
+				}
+			});
+		}
+		if (!recursiveRoots.isEmpty()) {
+			localFileSystem.refreshIoFiles(recursiveRoots, true, true, new Runnable() {
+				@Override
+				public void run() {
+					LOG.info("Recursive refresh of " + recursiveRoots.size() + " root(s) for " + numRequested + " requested file(s) finished in " + (System.currentTimeMillis() - start) + " ms");
+				}
+			});
+		}
+	}
+
+	/**
+	 * Collapses the given files to a minimal set of refresh roots
+	 * @param files             the requested files
+	 * @param nonRecursiveRoots list the roots to be refreshed non recursively are added to
+	 * @param recursiveRoots    list the roots to be refreshed recursively are added to
+	 */
+	static void collapse(Collection<File> files, List<File> nonRecursiveRoots, List<File> recursiveRoots) {
+		// requested paths, grouped by parent folder
+		Map<String, List<String>> pathsByParent = new HashMap<String, List<String>>();
+		for (File file : files) {
+			String path = PluginTools.ensureUnixPath(file.getAbsolutePath());
+			while (path.length() > 1 && path.endsWith("/")) {
+				path = path.substring(0, path.length() - 1);
+			}
+			String parentPath = getParentPath(path);
+			List<String> siblings = pathsByParent.get(parentPath);
+			if (siblings == null) {
+				siblings = new ArrayList<String>();
+				pathsByParent.put(parentPath, siblings);
+			}
+			if (!siblings.contains(path)) {
+				siblings.add(path);
+			}
+		}
+
+		// replace files by their parent folder if enough files in the folder were requested
+		Set<String> roots = new HashSet<String>();
+		for (Map.Entry<String, List<String>> entry : pathsByParent.entrySet()) {
+			if (entry.getKey() != null && entry.getValue().size() >= FOLDER_COLLAPSE_THRESHOLD) {
+				roots.add(entry.getKey());
+			}
+			else {
+				roots.addAll(entry.getValue());
+			}
+		}
+
+		// drop roots that are contained in other roots, those ancestors are refreshed recursively
+		Set<String> recursivePaths = new HashSet<String>();
+		Set<String> containedPaths = new HashSet<String>();
+		for (String root : roots) {
+			String topmostAncestor = null;
+			for (String ancestor = getParentPath(root); ancestor != null; ancestor = getParentPath(ancestor)) {
+				if (roots.contains(ancestor)) {
+					topmostAncestor = ancestor;
+				}
+			}
+			if (topmostAncestor != null) {
+				recursivePaths.add(topmostAncestor);
+				containedPaths.add(root);
+			}
+		}
+
+		List<String> sortedRoots = new ArrayList<String>(roots);
+		Collections.sort(sortedRoots);
+		for (String root : sortedRoots) {
+			if (containedPaths.contains(root)) {
+				continue;
+			}
+			if (recursivePaths.contains(root)) {
+				recursiveRoots.add(new File(root));
+			}
+			else {
+				nonRecursiveRoots.add(new File(root));
+			}
+		}
+	}
+
+	/**
+	 * @param path a unix style path without trailing slash
+	 * @return the parent path, <code>null</code> if the path has no parent
+	 */
+	private static String getParentPath(String path) {
+		int lastSlash = path.lastIndexOf('/');
+		if (lastSlash < 0 || path.length() == 1) {
+			return null;
+		}
+		if (lastSlash == 0) {
+			return "/";
+		}
+		return path.substring(0, lastSlash);
+	}
+}